@@ -7,6 +7,9 @@ import net.fabricmc.fabric.api.event.Event;
 import net.fabricmc.fabric.api.event.EventFactory;
 import net.minecraft.server.command.ServerCommandSource;
 
+/**
+ * Events ran as part of {@link StyledChatPipeline}, by its "styledchat:events" stages.
+ */
 public class StyledChatEvents {
     /**
      * Event ran for message content before they are formatted (Strings)
@@ -3,7 +3,21 @@ package eu.pb4.styledchat;
 import eu.pb4.placeholders.api.Placeholders;
 import eu.pb4.playerdata.api.PlayerDataApi;
 import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.other.BroadcastThrottle;
+import eu.pb4.styledchat.other.ChatChannels;
+import eu.pb4.styledchat.other.ChatHistory;
+import eu.pb4.styledchat.other.ChatLogWriter;
+import eu.pb4.styledchat.other.ChatQueue;
+import eu.pb4.styledchat.other.ChatRateLimiter;
+import eu.pb4.styledchat.other.DuplicateFilter;
 import eu.pb4.styledchat.other.GenericModInfo;
+import eu.pb4.styledchat.other.IgnoreList;
+import eu.pb4.styledchat.other.JoinLeaveCoalescer;
+import eu.pb4.styledchat.other.LoadShedding;
+import eu.pb4.styledchat.other.PermissionOptions;
+import eu.pb4.styledchat.other.PlayerChunkIndex;
+import eu.pb4.styledchat.parser.MentionParser;
+import eu.pb4.styledchat.parser.PlaceholderCache;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.api.ModContainer;
@@ -35,17 +49,47 @@ public class StyledChatMod implements ModInitializer {
 		this.crabboardDetection();
 		GenericModInfo.build(CONTAINER);
 		PlayerDataApi.register(StyledChatUtils.PLAYER_DATA);
-		Placeholders.registerChangeEvent((id, removed) -> ConfigManager.clearCached());
+		PlayerDataApi.register(IgnoreList.STORAGE);
+		Placeholders.registerChangeEvent((id, removed) -> {
+			ConfigManager.clearCached();
+			PlaceholderCache.clear();
+		});
 	}
 
 
 	public static void serverStarting(MinecraftServer s) {
 		crabboardDetection();
 		ConfigManager.loadConfig();
+		PermissionOptions.registerListeners();
 		server = s;
 	}
 
+	public static void serverTick(MinecraftServer s) {
+		PlaceholderCache.clear();
+		StyledChatPipeline.clearCache();
+		ChatQueue.tick(s);
+		JoinLeaveCoalescer.tickAll(s);
+		BroadcastThrottle.tickAll(s);
+		ChatChannels.tick(s);
+		LoadShedding.tick(s);
+		DuplicateFilter.tick(s);
+	}
+
 	public static void serverStopped(MinecraftServer s) {
+		ChatLogWriter.close();
+		ChatHistory.close();
+		JoinLeaveCoalescer.resetAll();
+		BroadcastThrottle.resetAll();
+		PlayerChunkIndex.clear();
+		ChatChannels.clear();
+		IgnoreList.clear();
+		PlaceholderCache.clear();
+		StyledChatPipeline.clearCache();
+		MentionParser.clearCache();
+		LoadShedding.reset();
+		ChatQueue.clear();
+		ChatRateLimiter.clear();
+		DuplicateFilter.clear();
 		server = null;
 	}
 
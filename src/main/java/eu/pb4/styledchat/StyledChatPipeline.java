@@ -0,0 +1,339 @@
+package eu.pb4.styledchat;
+
+import eu.pb4.placeholders.api.PlaceholderContext;
+import eu.pb4.placeholders.api.node.TextNode;
+import eu.pb4.placeholders.api.parsers.NodeParser;
+import eu.pb4.styledchat.other.IgnoreList;
+import eu.pb4.styledchat.parser.PlaceholderCache;
+import eu.pb4.styledchat.parser.WordFilter;
+import net.minecraft.network.message.MessageType;
+import net.minecraft.network.message.SignedMessage;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Stages every chat message goes through, grouped in phases which always run in this order:
+ * pre filter (raw input), parse (creation of parser), node transform, render, receiver transform and deliver (both per receiver).
+ * <p>
+ * Within a phase, stages run by priority (lower first), with "after" and "before" constraints taking precedence over it.
+ * Each stage tracks how many times it ran and how long it took. Results of pre filter stages declared as side effect free
+ * are reused for the rest of current tick when they get the same input string for the same player.
+ * <p>
+ * {@link StyledChatEvents} are ran by "styledchat:events" stages of pre filter and node transform phases.
+ */
+public final class StyledChatPipeline {
+    public static final int DEFAULT_PRIORITY = 1000;
+
+    public static final Phase<PreFilterStage> PRE_FILTER = new Phase<>("pre_filter");
+    public static final Phase<ParseStage> PARSE = new Phase<>("parse");
+    public static final Phase<NodeTransformStage> NODE_TRANSFORM = new Phase<>("node_transform");
+    public static final Phase<RenderStage> RENDER = new Phase<>("render");
+    public static final Phase<ReceiverTransformStage> RECEIVER_TRANSFORM = new Phase<>("receiver_transform");
+    public static final Phase<DeliverStage> DELIVER = new Phase<>("deliver");
+    public static final List<Phase<?>> PHASES = List.of(PRE_FILTER, PARSE, NODE_TRANSFORM, RENDER, RECEIVER_TRANSFORM, DELIVER);
+
+    private static final int MAX_CACHED = 1024;
+    private static final Map<CacheKey, String> CACHE = new HashMap<>();
+
+    static {
+        var events = new Identifier("styledchat", "events");
+        register(PRE_FILTER, events, (input, context) -> StyledChatMod.USE_FABRIC_API
+                ? StyledChatEvents.PRE_MESSAGE_CONTENT.invoker().onPreMessage(input, context) : input);
+        register(NODE_TRANSFORM, events, (node, context) -> StyledChatMod.USE_FABRIC_API
+                ? StyledChatEvents.MESSAGE_CONTENT.invoker().onMessage(node, context) : node);
+        register(RENDER, new Identifier("styledchat", "word_filter"), (text, context) -> WordFilter.apply(context, text));
+        register(DELIVER, new Identifier("styledchat", "ignore_list"), (message, source, receiver) -> {
+            if (!message.isSenderMissing()) {
+                return !IgnoreList.isIgnoring(receiver, message.getSender());
+            }
+            return source == null || !IgnoreList.isIgnoring(receiver, source.getPlayer());
+        });
+    }
+
+    public static <T> Stage<T> register(Phase<T> phase, Identifier id, T handler) {
+        return register(phase, id, Settings.create(), handler);
+    }
+
+    public static <T> Stage<T> register(Phase<T> phase, Identifier id, Settings settings, T handler) {
+        return phase.register(id, settings, handler);
+    }
+
+    public static String preFilter(String input, PlaceholderContext context) {
+        for (var stage : PRE_FILTER.getStages()) {
+            var start = System.nanoTime();
+            var value = input;
+            input = cached(stage, value, context, () -> stage.handler.apply(value, context));
+            stage.record(start);
+        }
+        return input;
+    }
+
+    public static NodeParser parse(NodeParser parser, PlaceholderContext context) {
+        for (var stage : PARSE.getStages()) {
+            var start = System.nanoTime();
+            parser = stage.handler.apply(parser, context);
+            stage.record(start);
+        }
+        return parser;
+    }
+
+    public static TextNode transformNode(TextNode node, PlaceholderContext context) {
+        for (var stage : NODE_TRANSFORM.getStages()) {
+            var start = System.nanoTime();
+            node = stage.handler.apply(node, context);
+            stage.record(start);
+        }
+        return node;
+    }
+
+    public static Text render(Text text, PlaceholderContext context) {
+        for (var stage : RENDER.getStages()) {
+            var start = System.nanoTime();
+            text = stage.handler.apply(text, context);
+            stage.record(start);
+        }
+        return text;
+    }
+
+    /**
+     * Transforms message (stored as name of parameters) sent to single receiver.
+     * Returns provided parameters if none of stages changed it.
+     */
+    public static MessageType.Parameters transformForReceiver(MessageType.Parameters parameters, SignedMessage message, ServerPlayerEntity receiver) {
+        var stages = RECEIVER_TRANSFORM.getStages();
+        if (stages.isEmpty()) {
+            return parameters;
+        }
+
+        var text = parameters.name();
+        for (var stage : stages) {
+            var start = System.nanoTime();
+            text = stage.handler.apply(text, message, receiver);
+            stage.record(start);
+        }
+        return text != parameters.name() ? new MessageType.Parameters(parameters.type(), text, parameters.targetName()) : parameters;
+    }
+
+    public static boolean shouldDeliver(SignedMessage message, @Nullable ServerCommandSource source, ServerPlayerEntity receiver) {
+        for (var stage : DELIVER.getStages()) {
+            var start = System.nanoTime();
+            var deliver = stage.handler.shouldDeliver(message, source, receiver);
+            stage.record(start);
+            if (!deliver) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void clearCache() {
+        if (!CACHE.isEmpty()) {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * Only string inputs are cached, as hashing and comparing Text trees would cost about as much as rendering them again.
+     */
+    private static String cached(Stage<?> stage, String input, PlaceholderContext context, Supplier<String> supplier) {
+        if (!stage.sideEffectFree || !context.server().isOnThread()) {
+            return supplier.get();
+        }
+
+        var key = new CacheKey(stage, input, PlaceholderCache.getOwner(context));
+        var value = CACHE.get(key);
+        if (value != null) {
+            stage.cacheHits.increment();
+            return value;
+        }
+
+        value = supplier.get();
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.put(key, value);
+        }
+        return value;
+    }
+
+    public interface PreFilterStage {
+        String apply(String input, PlaceholderContext context);
+    }
+
+    public interface ParseStage {
+        NodeParser apply(NodeParser parser, PlaceholderContext context);
+    }
+
+    public interface NodeTransformStage {
+        TextNode apply(TextNode node, PlaceholderContext context);
+    }
+
+    public interface RenderStage {
+        Text apply(Text text, PlaceholderContext context);
+    }
+
+    public interface ReceiverTransformStage {
+        Text apply(Text text, SignedMessage message, ServerPlayerEntity receiver);
+    }
+
+    public interface DeliverStage {
+        boolean shouldDeliver(SignedMessage message, @Nullable ServerCommandSource source, ServerPlayerEntity receiver);
+    }
+
+    public static final class Settings {
+        private int priority = DEFAULT_PRIORITY;
+        private final Set<Identifier> after = new HashSet<>();
+        private final Set<Identifier> before = new HashSet<>();
+        private boolean sideEffectFree = false;
+
+        private Settings() {}
+
+        public static Settings create() {
+            return new Settings();
+        }
+
+        public Settings priority(int priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        public Settings after(Identifier... ids) {
+            this.after.addAll(List.of(ids));
+            return this;
+        }
+
+        public Settings before(Identifier... ids) {
+            this.before.addAll(List.of(ids));
+            return this;
+        }
+
+        /**
+         * Marks stage as one which result only depends on its input, allowing it to be reused.
+         * Only has effect on pre filter stages.
+         */
+        public Settings sideEffectFree() {
+            this.sideEffectFree = true;
+            return this;
+        }
+    }
+
+    public static final class Stage<T> {
+        public final Identifier id;
+        public final Phase<T> phase;
+        public final int priority;
+        public final Set<Identifier> after;
+        public final Set<Identifier> before;
+        public final boolean sideEffectFree;
+        private final T handler;
+        private final int index;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+
+        private Stage(Identifier id, Phase<T> phase, Settings settings, T handler, int index) {
+            this.id = id;
+            this.phase = phase;
+            this.priority = settings.priority;
+            this.after = Set.copyOf(settings.after);
+            this.before = Set.copyOf(settings.before);
+            this.sideEffectFree = settings.sideEffectFree;
+            this.handler = handler;
+            this.index = index;
+        }
+
+        private void record(long start) {
+            this.nanos.add(System.nanoTime() - start);
+            this.calls.increment();
+        }
+
+        public long getCalls() {
+            return this.calls.sum();
+        }
+
+        public long getTotalNanos() {
+            return this.nanos.sum();
+        }
+
+        public long getCacheHits() {
+            return this.cacheHits.sum();
+        }
+    }
+
+    public static final class Phase<T> {
+        public final String name;
+        private final List<Stage<T>> registered = new ArrayList<>();
+        private volatile List<Stage<T>> stages = List.of();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns stages in order they are ran.
+         */
+        public List<Stage<T>> getStages() {
+            return this.stages;
+        }
+
+        private synchronized Stage<T> register(Identifier id, Settings settings, T handler) {
+            for (var stage : this.registered) {
+                if (stage.id.equals(id)) {
+                    throw new IllegalArgumentException("Stage " + id + " is already registered in phase " + this.name);
+                }
+            }
+
+            var stage = new Stage<>(id, this, settings, handler, this.registered.size());
+            this.registered.add(stage);
+            this.stages = this.sort();
+            return stage;
+        }
+
+        private List<Stage<T>> sort() {
+            var pending = new ArrayList<>(this.registered);
+            pending.sort(Comparator.<Stage<T>>comparingInt((x) -> x.priority).thenComparingInt((x) -> x.index));
+            var sorted = new ArrayList<Stage<T>>(pending.size());
+
+            while (!pending.isEmpty()) {
+                Stage<T> next = null;
+                for (var stage : pending) {
+                    if (this.isReady(stage, pending)) {
+                        next = stage;
+                        break;
+                    }
+                }
+
+                if (next == null) {
+                    next = pending.get(0);
+                    StyledChatMod.LOGGER.warn("Stages of phase {} have circular ordering constraints! Running {} first", this.name, next.id);
+                }
+
+                pending.remove(next);
+                sorted.add(next);
+            }
+
+            return List.copyOf(sorted);
+        }
+
+        private boolean isReady(Stage<T> stage, List<Stage<T>> pending) {
+            for (var other : pending) {
+                if (other != stage && (stage.after.contains(other.id) || other.before.contains(stage.id))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record CacheKey(Stage<?> stage, String input, @Nullable Object owner) {}
+}
@@ -2,11 +2,12 @@ package eu.pb4.styledchat;
 
 import eu.pb4.placeholders.api.PlaceholderContext;
 import eu.pb4.placeholders.api.node.TextNode;
+import eu.pb4.styledchat.config.ChatStyle;
 import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.config.MessageKind;
 import net.minecraft.entity.passive.TameableEntity;
-import net.minecraft.network.message.MessageType;
-import net.minecraft.network.message.MessageType.Parameters;
 import net.minecraft.registry.RegistryKeys;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
@@ -25,154 +26,161 @@ public final class StyledChatStyles {
         return ConfigManager.getConfig().getDisplayName(player, vanillaDisplayName);
     }
 
-    public static Text getChat(ServerPlayerEntity player, Text message) {
-        var style = StyledChatUtils.getPersonalStyle(player).getChat(player, message);
-        if (style != null) {
-            return style;
+    /**
+     * Resolves message of provided kind, checking personal style first, then permission styles and default one.
+     * Returns null only if no style defines it (which can only happen for custom message types).
+     */
+    @Nullable
+    public static Text resolve(MessageKind kind, PlaceholderContext context, Map<String, Text> args) {
+        if (context.hasPlayer()) {
+            var style = StyledChatUtils.getPersonalStyle(context.player()).render(kind, context, args);
+            if (style != null) {
+                return style;
+            }
         }
 
-        return ConfigManager.getConfig().getChat(player, message);
+        return ConfigManager.getConfig().render(kind, context, args);
     }
 
-    public static Text getJoin(ServerPlayerEntity player) {
-        var style = StyledChatUtils.getPersonalStyle(player).getJoin(player);
-        if (style != null) {
-            return style;
+    public static Text getChat(ServerPlayerEntity player, Text message) {
+        return resolve(MessageKind.CHAT, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "message", message));
+    }
+
+    public static Text getLocalChat(ServerPlayerEntity player, Text message) {
+        return resolve(MessageKind.LOCAL_CHAT, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "message", message));
+    }
+
+    /**
+     * Returns radius of local chat, 0 if player uses global chat.
+     */
+    public static int getLocalChatRadius(ServerPlayerEntity player) {
+        var radius = StyledChatUtils.getPersonalStyle(player).getLocalChatRadius();
+        if (radius != -1) {
+            return radius;
         }
 
-        return ConfigManager.getConfig().getJoin(player);
+        return ConfigManager.getConfig().getLocalChatRadius(PlaceholderContext.of(player));
     }
 
-    public static Text getJoinFirstTime(ServerPlayerEntity player) {
-        var style = StyledChatUtils.getPersonalStyle(player).getJoinFirstTime(player);
-        if (style != null) {
-            return style;
+    public static ChatStyle.RateLimit getChatRateLimit(ServerPlayerEntity player) {
+        var limit = StyledChatUtils.getPersonalStyle(player).getChatRateLimit();
+        if (limit != null) {
+            return limit;
         }
 
-        return ConfigManager.getConfig().getJoinFirstTime(player);
+        return ConfigManager.getConfig().getChatRateLimit(PlaceholderContext.of(player));
     }
 
-    public static Text getJoinRenamed(ServerPlayerEntity player, String oldName) {
-        var style = StyledChatUtils.getPersonalStyle(player).getJoinRenamed(player, oldName);
-        if (style != null) {
-            return style;
+    public static Text getRateLimited(ServerPlayerEntity player, int seconds) {
+        return resolve(MessageKind.RATE_LIMITED, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "seconds", Text.literal(String.valueOf(seconds))));
+    }
+
+    public static ChatStyle.WordFilterAction getWordFilterAction(ServerPlayerEntity player) {
+        var action = StyledChatUtils.getPersonalStyle(player).getWordFilterAction();
+        if (action != null) {
+            return action;
         }
 
-        return ConfigManager.getConfig().getJoinRenamed(player, oldName);
+        return ConfigManager.getConfig().getWordFilterAction(PlaceholderContext.of(player));
+    }
+
+    public static Text getWordFilterBlocked(ServerPlayerEntity player) {
+        return resolve(MessageKind.WORD_FILTER_BLOCKED, PlaceholderContext.of(player), Map.of("player", player.getDisplayName()));
+    }
+
+    public static Text getWordFilterNotify(ServerPlayerEntity player, String message) {
+        return resolve(MessageKind.WORD_FILTER_NOTIFY, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "message", Text.literal(message)));
+    }
+
+    public static Text getQueueRejected(ServerPlayerEntity player) {
+        return resolve(MessageKind.QUEUE_REJECTED, PlaceholderContext.of(player), Map.of("player", player.getDisplayName()));
+    }
+
+    public static Text getDuplicateMuted(ServerPlayerEntity player, int seconds) {
+        return resolve(MessageKind.DUPLICATE_MUTED, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "seconds", Text.literal(String.valueOf(seconds))));
+    }
+
+    public static Text getDuplicateSummary(MinecraftServer server, String player, int count) {
+        return resolve(MessageKind.DUPLICATE_SUMMARY, PlaceholderContext.of(server), Map.of("player", Text.literal(player), "count", Text.literal(String.valueOf(count))));
+    }
+
+    public static Text getJoin(ServerPlayerEntity player) {
+        return resolve(MessageKind.JOIN, PlaceholderContext.of(player), Map.of("player", player.getDisplayName()));
+    }
+
+    public static Text getJoinFirstTime(ServerPlayerEntity player) {
+        return resolve(MessageKind.JOIN_FIRST_TIME, PlaceholderContext.of(player), Map.of("player", player.getDisplayName()));
+    }
+
+    public static Text getJoinRenamed(ServerPlayerEntity player, String oldName) {
+        return resolve(MessageKind.JOIN_RENAMED, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "old_name", Text.literal(oldName)));
     }
 
     public static Text getLeft(ServerPlayerEntity player) {
-        var style = StyledChatUtils.getPersonalStyle(player).getLeft(player);
-        if (style != null) {
-            return style;
-        }
+        return resolve(MessageKind.LEFT, PlaceholderContext.of(player), Map.of("player", player.getDisplayName()));
+    }
 
-        return ConfigManager.getConfig().getLeft(player);
+    public static Text getJoinSummary(MinecraftServer server, Text players, int others) {
+        if (others == 0) {
+            return resolve(MessageKind.JOIN_SUMMARY_ALL, PlaceholderContext.of(server), Map.of("players", players));
+        }
+        return resolve(MessageKind.JOIN_SUMMARY, PlaceholderContext.of(server), Map.of("players", players, "others", Text.literal(String.valueOf(others))));
     }
 
-    public static Text getDeath(ServerPlayerEntity player, Text vanillaMessage) {
-        var style = StyledChatUtils.getPersonalStyle(player).getDeath(player, vanillaMessage);
-        if (style != null) {
-            return style;
+    public static Text getLeftSummary(MinecraftServer server, Text players, int others) {
+        if (others == 0) {
+            return resolve(MessageKind.LEFT_SUMMARY_ALL, PlaceholderContext.of(server), Map.of("players", players));
         }
+        return resolve(MessageKind.LEFT_SUMMARY, PlaceholderContext.of(server), Map.of("players", players, "others", Text.literal(String.valueOf(others))));
+    }
 
-        return ConfigManager.getConfig().getDeath(player, vanillaMessage);
+    @Nullable
+    public static Text getSummary(MessageKind kind, MinecraftServer server, int count) {
+        return resolve(kind, PlaceholderContext.of(server), Map.of("count", Text.literal(String.valueOf(count))));
     }
 
-    public static Text getAdvancementTask(ServerPlayerEntity player, Text advancement) {
-        var style = StyledChatUtils.getPersonalStyle(player).getAdvancementTask(player, advancement);
-        if (style != null) {
-            return style;
-        }
+    public static Text getDeath(ServerPlayerEntity player, Text vanillaMessage) {
+        return resolve(MessageKind.DEATH, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "default_message", vanillaMessage));
+    }
 
-        return ConfigManager.getConfig().getAdvancementTask(player, advancement);
+    public static Text getAdvancementTask(ServerPlayerEntity player, Text advancement) {
+        return resolve(MessageKind.ADVANCEMENT_TASK, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "advancement", advancement));
     }
 
     public static Text getAdvancementGoal(ServerPlayerEntity player, Text advancement) {
-        var style = StyledChatUtils.getPersonalStyle(player).getAdvancementGoal(player, advancement);
-        if (style != null) {
-            return style;
-        }
-
-        return ConfigManager.getConfig().getAdvancementGoal(player, advancement);
+        return resolve(MessageKind.ADVANCEMENT_GOAL, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "advancement", advancement));
     }
 
     public static Text getAdvancementChallenge(ServerPlayerEntity player, Text advancement) {
-        var style = StyledChatUtils.getPersonalStyle(player).getAdvancementChallenge(player, advancement);
-        if (style != null) {
-            return style;
-        }
-
-        return ConfigManager.getConfig().getAdvancementChallenge(player, advancement);
+        return resolve(MessageKind.ADVANCEMENT_CHALLENGE, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "advancement", advancement));
     }
 
     public static Text getSayCommand(ServerCommandSource source, Text message) {
-        if (source.isExecutedByPlayer()) {
-            var style = StyledChatUtils.getPersonalStyle(source.getPlayer()).getSayCommand(source, message);
-            if (style != null) {
-                return style;
-            }
-        }
-
-        return ConfigManager.getConfig().getSayCommand(source, message);
+        return resolve(MessageKind.SAY_COMMAND, PlaceholderContext.of(source), Map.of("player", source.getDisplayName(), "displayName", source.getDisplayName(), "message", message));
     }
 
     public static Text getMeCommand(ServerCommandSource source, Text message) {
-        if (source.isExecutedByPlayer()) {
-            var style = StyledChatUtils.getPersonalStyle(source.getPlayer()).getMeCommand(source, message);
-            if (style != null) {
-                return style;
-            }
-        }
-
-        return ConfigManager.getConfig().getMeCommand(source, message);
+        return resolve(MessageKind.ME_COMMAND, PlaceholderContext.of(source), Map.of("player", source.getDisplayName(), "displayName", source.getDisplayName(), "message", message));
     }
 
     public static Text getPrivateMessageSent(Text sender, Text receiver, Text message, ServerCommandSource source) {
-        if (source.isExecutedByPlayer()) {
-            var style = StyledChatUtils.getPersonalStyle(source.getPlayer()).getPrivateMessageSent(sender, receiver, message, PlaceholderContext.of(source));
-            if (style != null) {
-                return style;
-            }
-        }
-
-        return ConfigManager.getConfig().getPrivateMessageSent(sender, receiver, message, source);
+        return resolve(MessageKind.PRIVATE_MESSAGE_SENT, PlaceholderContext.of(source), Map.of("sender", sender, "receiver", receiver, "message", message));
     }
 
     public static Text getPrivateMessageReceived(Text sender, Text receiver, Text message, ServerCommandSource source) {
-        if (source.isExecutedByPlayer()) {
-            var style = StyledChatUtils.getPersonalStyle(source.getPlayer()).getPrivateMessageReceived(sender, receiver, message, PlaceholderContext.of(source));
-            if (style != null) {
-                return style;
-            }
-        }
-        return ConfigManager.getConfig().getPrivateMessageReceived(sender, receiver, message, source);
+        return resolve(MessageKind.PRIVATE_MESSAGE_RECEIVED, PlaceholderContext.of(source), Map.of("sender", sender, "receiver", receiver, "message", message));
     }
 
     public static Text getTeamChatSent(Text team, Text displayName, Text message, ServerCommandSource source) {
-        if (source.isExecutedByPlayer()) {
-            var style = StyledChatUtils.getPersonalStyle(source.getPlayer()).getTeamChatSent(team, displayName, message, source);
-            if (style != null) {
-                return style;
-            }
-        }
-
-        return ConfigManager.getConfig().getTeamChatSent(team, displayName, message, source);
+        return resolve(MessageKind.TEAM_CHAT_SENT, PlaceholderContext.of(source), Map.of("team", team, "displayName", displayName, "message", message));
     }
 
     public static Text getTeamChatReceived(Text team, Text displayName, Text message, ServerCommandSource source) {
-        if (source.isExecutedByPlayer()) {
-            var style = StyledChatUtils.getPersonalStyle(source.getPlayer()).getTeamChatReceived(team, displayName, message, source);
-            if (style != null) {
-                return style;
-            }
-        }
-
-        return ConfigManager.getConfig().getTeamChatReceived(team, displayName, message, source);
+        return resolve(MessageKind.TEAM_CHAT_RECEIVED, PlaceholderContext.of(source), Map.of("team", team, "displayName", displayName, "message", message));
     }
 
     public static Text getPetDeath(TameableEntity entity, Text vanillaMessage) {
-        return ConfigManager.getConfig().getPetDeath(entity, vanillaMessage);
+        return resolve(MessageKind.PET_DEATH, PlaceholderContext.of(entity), Map.of("pet", entity.getDisplayName(), "default_message", vanillaMessage));
     }
 
     public static Map<String, TextNode> getEmotes(ServerCommandSource source) {
@@ -181,17 +189,14 @@ public final class StyledChatStyles {
     }
 
     public static Text getCustom(Identifier identifier, Text displayName, Text message, @Nullable Text receiver, ServerCommandSource source) {
-        if (source.isExecutedByPlayer()) {
-            var style = StyledChatUtils.getPersonalStyle(source.getPlayer()).getCustom(identifier, displayName, message, receiver, source);
-            if (style != null) {
-                return style;
-            }
-        }
+        var kind = MessageKind.getCustom(identifier);
 
-        var out = ConfigManager.getConfig().getCustom(identifier, displayName, message, receiver, source);
+        if (kind != null) {
+            var out = resolve(kind, PlaceholderContext.of(source), Map.of("receiver", receiver == null ? Text.empty() : receiver, "displayName", displayName, "message", message));
 
-        if (out != null) {
-            return out;
+            if (out != null) {
+                return out;
+            }
         }
 
         var type = StyledChatMod.server.getRegistryManager().get(RegistryKeys.MESSAGE_TYPE).get(identifier);
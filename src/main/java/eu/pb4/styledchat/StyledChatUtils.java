@@ -11,14 +11,22 @@ import eu.pb4.placeholders.api.parsers.TextParserV1.NodeList;
 import eu.pb4.placeholders.api.parsers.TextParserV1.TextTag;
 import eu.pb4.placeholders.impl.GeneralUtils;
 import eu.pb4.playerdata.api.PlayerDataApi;
-import eu.pb4.playerdata.api.storage.JsonDataStorage;
+import eu.pb4.playerdata.api.storage.PlayerDataStorage;
 import eu.pb4.styledchat.config.ChatStyle;
 import eu.pb4.styledchat.config.Config;
 import eu.pb4.styledchat.config.ConfigManager;
 import eu.pb4.styledchat.config.data.ChatStyleData;
 import eu.pb4.styledchat.config.data.VersionedChatStyleData;
 import eu.pb4.styledchat.ducks.ExtPlayNetworkHandler;
+import eu.pb4.styledchat.ducks.ExtServerPlayerEntity;
 import eu.pb4.styledchat.ducks.ExtSignedMessage;
+import eu.pb4.styledchat.other.ChatChannels;
+import eu.pb4.styledchat.other.ChatHistory;
+import eu.pb4.styledchat.other.ChatLogWriter;
+import eu.pb4.styledchat.other.CompactStyleDataStorage;
+import eu.pb4.styledchat.other.LoadShedding;
+import eu.pb4.styledchat.other.LocalChat;
+import eu.pb4.styledchat.parser.InputGuard;
 import eu.pb4.styledchat.parser.LinkParser;
 import eu.pb4.styledchat.parser.MentionParser;
 import eu.pb4.styledchat.parser.SpoilerNode;
@@ -28,32 +36,45 @@ import net.minecraft.command.EntitySelector;
 import net.minecraft.network.message.MessageBody;
 import net.minecraft.network.message.MessageDecorator;
 import net.minecraft.network.message.MessageType;
+import net.minecraft.network.message.SentMessage;
 import net.minecraft.network.message.SignedMessage;
 import net.minecraft.network.packet.s2c.play.ChatSuggestionsS2CPacket;
 import net.minecraft.registry.RegistryKey;
 import net.minecraft.scoreboard.Team;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.*;
 import net.minecraft.util.Formatting;
+import net.minecraft.util.Util;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 public final class StyledChatUtils {
     public static final Text IGNORED_TEXT = Text.empty();
 
+    /**
+     * @deprecated Links are now found with {@link eu.pb4.styledchat.parser.UrlScanner}
+     */
+    @Deprecated
     public static final Pattern URL_REGEX = Pattern.compile("(https?:\\/\\/[-a-zA-Z0-9@:%._\\+~#=]+\\.[^ ]+)");
 
     public static final String ITEM_KEY = "item";
     public static final String POS_KEY = "pos";
     public static final String SPOILER_TAG = "spoiler";
+    /**
+     * How long network handler waits for style prepared at login, before building it on its own
+     */
+    public static final long PENDING_STYLE_TIMEOUT_MS = 50;
     private static final Function<MutableText, MutableText> COLOR_CLEARING = (t) -> t.setStyle(t.getStyle().withColor((TextColor) null));
 
-    public static JsonDataStorage<VersionedChatStyleData> PLAYER_DATA = new JsonDataStorage<>("styled_chat_style", VersionedChatStyleData.class, ConfigManager.GSON);
+    public static PlayerDataStorage<VersionedChatStyleData> PLAYER_DATA = new CompactStyleDataStorage("styled_chat_style");
 
     public static final TextParserV1.TagNodeBuilder SPOILER_TAG_HANDLER = (tag, data, input, handlers, endAt) -> {
         var out = TextParserV1.parseNodesWith(input, handlers, endAt);
@@ -65,8 +86,13 @@ public final class StyledChatUtils {
 
     public static final String FORMAT_PERMISSION_BASE = "styledchat.format.";
     public static final String FORMAT_PERMISSION_UNSAFE = "styledchat.unsafe_format.";
-    public static final Pattern EMOTE_PATTERN = Pattern.compile("(?<!((?<!(\\\\))\\\\))[:](?<id>[^:]+)[:]");;
+    /**
+     * Matches :emote: not preceded by unescaped backslash. Lookbehind is fixed length and id can't contain colons,
+     * so every match attempt ends at the next colon and matching stays linear in input length.
+     */
+    public static final Pattern EMOTE_PATTERN = Pattern.compile("(?<!(?<!\\\\)\\\\):(?<id>[^:]+):");
     public static final Text EMPTY_TEXT = Text.empty();
+    private static final Text FILTERED_FULL_TEXT = Text.translatable("chat.filtered_full");
     private static final Set<RegistryKey<MessageType>> DECORABLE = Set.of(MessageType.CHAT, MessageType.EMOTE_COMMAND, MessageType.MSG_COMMAND_INCOMING, MessageType.MSG_COMMAND_OUTGOING, MessageType.SAY_COMMAND, MessageType.TEAM_MSG_COMMAND_INCOMING, MessageType.TEAM_MSG_COMMAND_OUTGOING);
 
     @Deprecated
@@ -85,15 +111,15 @@ public final class StyledChatUtils {
 
         list.add(base);
 
-        if (config.configData.formatting.parseLinksInChat) {
-            list.add(new LinkParser(ConfigManager.getConfig().getLinkStyle(context)));
+        if (config.configData.formatting.parseLinksInChat && !LoadShedding.isDisabled(LoadShedding.Stage.LINKS)) {
+            list.add(new LinkParser(ConfigManager.getConfig().getLinkTemplate(context)));
         }
 
-        if (config.configData.formatting.parseMentionsInChat) {
+        if (config.configData.formatting.parseMentionsInChat && !LoadShedding.isDisabled(LoadShedding.Stage.MENTIONS)) {
             list.add(new MentionParser(ConfigManager.getConfig().getMentionStyle(context), context));
         }
 
-        if (config.configData.formatting.markdown) {
+        if (config.configData.formatting.markdown && !LoadShedding.isDisabled(LoadShedding.Stage.MARKDOWN)) {
             var form = new ArrayList<MarkdownLiteParserV1.MarkdownFormat>();
 
             if (base.getTagParser("bold") != null) {
@@ -121,11 +147,11 @@ public final class StyledChatUtils {
             }
 
             if (!form.isEmpty()) {
-                list.add(new MarkdownLiteParserV1(SpoilerNode::new, MarkdownLiteParserV1::defaultQuoteFormatting, form.toArray(new MarkdownLiteParserV1.MarkdownFormat[0])));
+                list.add(new MarkdownLiteParserV1(SpoilerNode::new, MarkdownLiteParserV1::defaultQuoteFormatting, LinkParser::formatMarkdownUrl, form.toArray(new MarkdownLiteParserV1.MarkdownFormat[0])));
             }
         }
 
-        if (config.configData.formatting.legacyChatFormatting) {
+        if (config.configData.formatting.legacyChatFormatting && !LoadShedding.isDisabled(LoadShedding.Stage.LEGACY_FORMATTING)) {
             var form = new ArrayList<Formatting>();
             for (var formatting : Formatting.values()) {
                 if (base.getTagParser(formatting.getName()) != null) {
@@ -140,10 +166,12 @@ public final class StyledChatUtils {
             }
         }
 
-        var emotes = getEmotes(context);
+        if (!LoadShedding.isDisabled(LoadShedding.Stage.EMOTICONS)) {
+            var emotes = getEmotes(context);
 
-        if (!emotes.isEmpty()) {
-            list.add(new PatternPlaceholderParser(EMOTE_PATTERN, emotes::get));
+            if (!emotes.isEmpty()) {
+                list.add(new PatternPlaceholderParser(EMOTE_PATTERN, emotes::get));
+            }
         }
 
         return NodeParser.merge(list);
@@ -180,19 +208,33 @@ public final class StyledChatUtils {
     }
 
     public static Text formatFor(PlaceholderContext context, String input) {
-        var parser = createParser(context);
+        input = StyledChatPipeline.preFilter(input, context);
+        var parser = StyledChatPipeline.parse(createParser(context), context);
         var config = ConfigManager.getConfig();
-        if (StyledChatMod.USE_FABRIC_API) {
-            input = StyledChatEvents.PRE_MESSAGE_CONTENT.invoker().onPreMessage(input, context);
+
+        if (!InputGuard.isAllowed(input)) {
+            return InputGuard.fallback(context, input, "too many tags");
         }
 
-        var value = TextNode.asSingle(parser.parseNodes(new LiteralNode(input)));
+        Text text;
+        try {
+            InputGuard.start();
+            var value = TextNode.asSingle(parser.parseNodes(new LiteralNode(input)));
+            value = StyledChatPipeline.transformNode(value, context);
 
-        if (StyledChatMod.USE_FABRIC_API) {
-            value = StyledChatEvents.MESSAGE_CONTENT.invoker().onMessage(value, context);
-        }
+            if (!InputGuard.isAllowed(value)) {
+                return InputGuard.fallback(context, input, "too many or too deeply nested nodes");
+            }
 
-        var text = value.toText(context);
+            text = value.toText(context);
+            text = StyledChatPipeline.render(text, context);
+
+            if (InputGuard.isOverBudget()) {
+                return InputGuard.fallback(context, input, "took too long");
+            }
+        } finally {
+            InputGuard.end();
+        }
 
         if (config.configData.formatting.respectColors) {
             try {
@@ -210,9 +252,6 @@ public final class StyledChatUtils {
     }
 
     public static <T> MessageDecorator getCommandDecorator(String context, ServerCommandSource source, BiFunction<String, Class<?>, Object> argumentGetter) {
-        Config config = ConfigManager.getConfig();
-
-
         return (player, message) -> {
             var input = formatFor(player != null ? PlaceholderContext.of(player) : PlaceholderContext.of(StyledChatMod.server), message.getString());
 
@@ -220,7 +259,7 @@ public final class StyledChatUtils {
             return switch (context) {
                 case "msg" -> {
                     try {
-                        yield config.getPrivateMessageReceived(
+                        yield StyledChatStyles.getPrivateMessageReceived(
                                 source.getDisplayName(),
                                 ((EntitySelector) argumentGetter.apply("targets", EntitySelector.class)).getPlayers(source).get(0).getDisplayName(),
                                 input, source
@@ -232,7 +271,7 @@ public final class StyledChatUtils {
                 }
                 case "teammsg" -> {
                     try {
-                        yield config.getTeamChatReceived(((Team) source.getEntity().getScoreboardTeam()).getFormattedName(),
+                        yield StyledChatStyles.getTeamChatReceived(((Team) source.getEntity().getScoreboardTeam()).getFormattedName(),
                                 source.getDisplayName(),
                                 input, source
                         );
@@ -241,9 +280,9 @@ public final class StyledChatUtils {
                     }
                 }
 
-                case "say" -> config.getSayCommand(source, input);
+                case "say" -> StyledChatStyles.getSayCommand(source, input);
 
-                case "me" -> config.getMeCommand(source, input);
+                case "me" -> StyledChatStyles.getMeCommand(source, input);
 
                 default -> input;
             };
@@ -287,7 +326,11 @@ public final class StyledChatUtils {
 
     public static void modifyForSending(SignedMessage message, ServerCommandSource source, RegistryKey<MessageType> type) {
         try {
-             ExtSignedMessage.setArg(message, "override", StyledChatUtils.formatMessage(message, source, type));
+            if (type == MessageType.CHAT && source.getPlayer() != null && !ChatChannels.prepare(message, source.getPlayer())) {
+                LocalChat.prepare(message, source.getPlayer());
+            }
+            var override = StyledChatUtils.formatMessage(message, source, type);
+            ExtSignedMessage.setArg(message, "override", override);
             ((ExtSignedMessage) (Object) message).styledChat_setType(type);
             ((ExtSignedMessage) (Object) message).styledChat_setSource(source);
         } catch (Exception e) {
@@ -295,6 +338,50 @@ public final class StyledChatUtils {
         }
     }
 
+    /**
+     * Logs chat message, writing styled version to chat log, chat history and (if enabled) console.
+     * It's called when message is actually broadcast, so queued messages are logged once they are sent and rejected ones never are.
+     */
+    public static void logChatMessage(MinecraftServer server, SignedMessage message, MessageType.Parameters params, @Nullable String prefix) {
+        var override = ExtSignedMessage.getArg(message, "override");
+        if (override == EMPTY_TEXT) {
+            server.logChatMessage(message.getContent(), params, prefix);
+        } else if (override != IGNORED_TEXT) {
+            var type = ExtSignedMessage.of(message).styledChat_getType();
+            var sender = message.isSenderMissing() ? null : message.getSender();
+            var typeName = type != null ? type.getValue().toString() : "unknown";
+            var original = ExtSignedMessage.of(message).styledChat_getOriginal();
+            ChatLogWriter.log(sender, typeName, original, override);
+            ChatHistory.record(server, sender, typeName, original, override);
+
+            if (ConfigManager.getConfig().configData.chatLog.consoleEcho) {
+                server.sendMessage(override);
+            }
+        }
+    }
+
+    /**
+     * Sends message only to selected receivers, the same way as vanilla broadcasting does.
+     */
+    public static void broadcastTo(MinecraftServer server, SignedMessage message, Predicate<ServerPlayerEntity> shouldSendFiltered, ServerPlayerEntity sender, MessageType.Parameters params, Collection<ServerPlayerEntity> receivers) {
+        logChatMessage(server, message, params, null);
+
+        var sentMessage = SentMessage.of(message);
+        var notifyFiltered = false;
+
+        for (var receiver : receivers) {
+            var filtered = shouldSendFiltered.test(receiver);
+            receiver.sendChatMessage(sentMessage, filtered, params);
+            notifyFiltered |= filtered && message.isFullyFiltered();
+        }
+
+        if (notifyFiltered) {
+            sender.sendMessage(FILTERED_FULL_TEXT);
+        }
+
+        ExtSignedMessage.of(message).styledChat_release();
+    }
+
     public static Text formatMessage(SignedMessage message, ServerCommandSource source, RegistryKey<MessageType> type) {
         var ext = (ExtSignedMessage) (Object) message;
 
@@ -358,7 +445,16 @@ public final class StyledChatUtils {
 
             case "emote_command" -> StyledChatStyles.getMeCommand(source, input);
 
-            case "chat" -> StyledChatStyles.getChat(source.getPlayer(), input);
+            case "chat" -> {
+                var channel = ext.styledChat_getChannel();
+                if (channel != null) {
+                    yield channel.render(source.getPlayer(), input);
+                }
+
+                yield ext.styledChat_getLocalRadius() > 0
+                        ? StyledChatStyles.getLocalChat(source.getPlayer(), input)
+                        : StyledChatStyles.getChat(source.getPlayer(), input);
+            }
 
             default -> StyledChatStyles.getCustom(type.getValue(), source.getDisplayName(), input, null, source);
         };
@@ -459,20 +555,58 @@ public final class StyledChatUtils {
         PlayerDataApi.setCustomDataFor(player, PLAYER_DATA, new VersionedChatStyleData());
     }
 
-    public static ChatStyle createStyleOf(ServerPlayerEntity player) {
-        var style = PlayerDataApi.getCustomDataFor(player, PLAYER_DATA);
+    /**
+     * Starts building personal style of player off-thread. Personal data and command source are taken on calling (server) thread,
+     * so worker doesn't touch player itself. Result is picked up by network handler the first time style is needed.
+     */
+    public static void prepareStyleAsync(ServerPlayerEntity player) {
+        var data = copyPersonalData(player);
+        var source = player.getCommandSource();
+        ((ExtServerPlayerEntity) player).styledChat$setPendingStyle(CompletableFuture.supplyAsync(() -> createStyleOf(source, data), Util.getMainWorkerExecutor()));
+    }
 
-        if (style == null) {
-            style = new VersionedChatStyleData();
-        } else {
-            style = (VersionedChatStyleData) style.clone();
+    /**
+     * Rebuilds styles of multiple players in parallel and applies them on server thread.
+     * Personal data is only changed in memory, it's written by Player Data API together with rest of player's data,
+     * so it's never written from other threads.
+     */
+    public static CompletableFuture<Void> updateStylesAsync(MinecraftServer server, Collection<ServerPlayerEntity> players) {
+        var futures = new ArrayList<CompletableFuture<Void>>();
+
+        for (var player : players) {
+            var copy = copyPersonalData(player);
+            var source = player.getCommandSource();
+
+            futures.add(CompletableFuture.supplyAsync(() -> createStyleOf(source, copy), Util.getMainWorkerExecutor())
+                    .thenAcceptAsync((style) -> {
+                        if (player.networkHandler != null) {
+                            ((ExtPlayNetworkHandler) player.networkHandler).styledChat$setStyle(style);
+                        }
+                    }, server));
         }
 
-        style.fillPermissionOptionProvider(player.getCommandSource());
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    public static ChatStyle createStyleOf(ServerPlayerEntity player) {
+        return createStyleOf(player.getCommandSource(), copyPersonalData(player));
+    }
+
+    /**
+     * Creates style out of provided data. Passed data will be modified, so it shouldn't be shared.
+     * Safe to call off-thread, as long as source and data were taken on server thread.
+     */
+    public static ChatStyle createStyleOf(ServerCommandSource source, ChatStyleData style) {
+        style.fillPermissionOptionProvider(source);
 
         return new ChatStyle(style);
     }
 
+    private static VersionedChatStyleData copyPersonalData(ServerPlayerEntity player) {
+        var style = PlayerDataApi.getCustomDataFor(player, PLAYER_DATA);
+        return style != null ? (VersionedChatStyleData) style.clone() : new VersionedChatStyleData();
+    }
+
     public static MessageType.Parameters createParameters(Text override) {
         return new MessageType.Parameters(StyledChatMod.getMessageType(), override, null);
     }
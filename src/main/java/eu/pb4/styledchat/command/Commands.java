@@ -1,7 +1,9 @@
 package eu.pb4.styledchat.command;
 
 
+import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.ArgumentBuilder;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
@@ -12,13 +14,23 @@ import eu.pb4.placeholders.api.PlaceholderContext;
 import eu.pb4.placeholders.api.Placeholders;
 import eu.pb4.placeholders.api.node.TextNode;
 import eu.pb4.styledchat.StyledChatMod;
+import eu.pb4.styledchat.StyledChatPipeline;
 import eu.pb4.styledchat.StyledChatUtils;
 import eu.pb4.styledchat.config.ConfigManager;
 import eu.pb4.styledchat.config.data.ChatStyleData;
+import eu.pb4.styledchat.other.BroadcastThrottle;
+import eu.pb4.styledchat.other.ChatChannels;
+import eu.pb4.styledchat.other.ChatHistory;
+import eu.pb4.styledchat.other.ChatQueue;
 import eu.pb4.styledchat.other.GenericModInfo;
+import eu.pb4.styledchat.other.IgnoreList;
+import eu.pb4.styledchat.other.LoadShedding;
+import eu.pb4.styledchat.other.PermissionOptions;
+import eu.pb4.styledchat.parser.MentionParser;
 import me.lucko.fabric.api.permissions.v0.Permissions;
 import net.minecraft.command.CommandRegistryAccess;
 import net.minecraft.command.argument.EntityArgumentType;
+import net.minecraft.command.argument.GameProfileArgumentType;
 import net.minecraft.command.argument.IdentifierArgumentType;
 import net.minecraft.registry.RegistryKeys;
 import net.minecraft.server.command.CommandManager;
@@ -27,6 +39,13 @@ import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -37,6 +56,8 @@ import static net.minecraft.server.command.CommandManager.argument;
 import static net.minecraft.server.command.CommandManager.literal;
 
 public class Commands {
+    private static final DateTimeFormatter HISTORY_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
     public static void register(CommandDispatcher<ServerCommandSource> dispatcher, CommandRegistryAccess registryAccess, CommandManager.RegistrationEnvironment environment) {
         dispatcher.register(
                 literal("styledchat")
@@ -48,6 +69,57 @@ public class Commands {
                                 .executes(Commands::reloadConfig)
                         )
 
+                        .then(literal("channel")
+                                .requires(Permissions.require("styledchat.channel", true))
+                                .executes((ctx) -> Commands.switchChannel(ctx, null))
+                                .then(argument("channel", StringArgumentType.word())
+                                        .suggests((context, builder) -> {
+                                            var player = context.getSource().getPlayer();
+                                            for (var channel : ConfigManager.getConfig().channels) {
+                                                if (player != null && ChatChannels.isMember(channel, player)) {
+                                                    builder.suggest(channel.name);
+                                                }
+                                            }
+                                            return builder.buildFuture();
+                                        })
+                                        .executes((ctx) -> Commands.switchChannel(ctx, StringArgumentType.getString(ctx, "channel")))
+                                )
+                        )
+
+                        .then(literal("ignore")
+                                .requires(Permissions.require("styledchat.ignore", true))
+                                .executes(Commands::listIgnored)
+                                .then(literal("add")
+                                        .then(argument("player", GameProfileArgumentType.gameProfile())
+                                                .executes((ctx) -> Commands.changeIgnored(ctx, true))
+                                        )
+                                )
+                                .then(literal("remove")
+                                        .then(argument("player", GameProfileArgumentType.gameProfile())
+                                                .executes((ctx) -> Commands.changeIgnored(ctx, false))
+                                        )
+                                )
+                        )
+
+                        .then(literal("stats")
+                                .requires(Permissions.require("styledchat.stats", 2))
+                                .executes(Commands::stats)
+                        )
+
+                        .then(literal("history")
+                                .requires(Permissions.require("styledchat.history", 2))
+                                .then(argument("player", GameProfileArgumentType.gameProfile())
+                                        .executes((ctx) -> Commands.showHistory(ctx, 1, ChatHistory.Filter.NONE))
+                                        .then(argument("page", IntegerArgumentType.integer(1))
+                                                .executes((ctx) -> Commands.showHistory(ctx, IntegerArgumentType.getInteger(ctx, "page"), ChatHistory.Filter.NONE))
+                                                .then(argument("filter", StringArgumentType.greedyString())
+                                                        .executes((ctx) -> Commands.showHistory(ctx, IntegerArgumentType.getInteger(ctx, "page"),
+                                                                ChatHistory.Filter.parse(StringArgumentType.getString(ctx, "filter"))))
+                                                )
+                                        )
+                                )
+                        )
+
                         .then(literal("set")
                                 .requires(Permissions.require("styledchat.set", 2))
                                 .then(fillWithProperties(argument("players", EntityArgumentType.players()),
@@ -103,6 +175,107 @@ public class Commands {
 
     }
 
+    private static int switchChannel(CommandContext<ServerCommandSource> context, @Nullable String name) throws CommandSyntaxException {
+        var player = context.getSource().getPlayerOrThrow();
+
+        if (name == null) {
+            ChatChannels.setActive(player, null);
+            context.getSource().sendFeedback(() -> Text.literal("Switched to global chat"), false);
+            return 1;
+        }
+
+        var channel = ConfigManager.getConfig().getChannel(name);
+        if (channel == null || !ChatChannels.setActive(player, channel)) {
+            context.getSource().sendError(Text.literal("Unknown channel: " + name));
+            return 0;
+        }
+
+        context.getSource().sendFeedback(() -> Text.literal("Switched to channel " + channel.name), false);
+        return 1;
+    }
+
+    private static int changeIgnored(CommandContext<ServerCommandSource> context, boolean add) throws CommandSyntaxException {
+        var player = context.getSource().getPlayerOrThrow();
+        var profiles = GameProfileArgumentType.getProfileArgument(context, "player");
+        int i = 0;
+
+        for (var profile : profiles) {
+            if (profile.getId().equals(player.getUuid())) {
+                context.getSource().sendError(Text.literal("You can't ignore yourself!"));
+            } else if (add ? IgnoreList.add(player, profile.getId()) : IgnoreList.remove(player, profile.getId())) {
+                context.getSource().sendFeedback(() -> Text.literal((add ? "Ignored " : "Stopped ignoring ") + profile.getName()), false);
+                i++;
+            } else {
+                context.getSource().sendError(Text.literal(profile.getName() + (add ? " is already ignored" : " isn't ignored")));
+            }
+        }
+
+        return i;
+    }
+
+    private static int listIgnored(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        var player = context.getSource().getPlayerOrThrow();
+        var ignored = IgnoreList.getIgnored(player);
+
+        if (ignored.isEmpty()) {
+            context.getSource().sendFeedback(() -> Text.literal("You aren't ignoring anyone"), false);
+            return 0;
+        }
+
+        var names = new ArrayList<String>();
+        var userCache = context.getSource().getServer().getUserCache();
+        for (var uuid : ignored) {
+            names.add(userCache != null ? userCache.getByUuid(uuid).map(GameProfile::getName).orElse(uuid.toString()) : uuid.toString());
+        }
+
+        context.getSource().sendFeedback(() -> Text.literal("Ignored players: " + String.join(", ", names)), false);
+        return ignored.size();
+    }
+
+    private static int showHistory(CommandContext<ServerCommandSource> context, int page, ChatHistory.Filter filter) throws CommandSyntaxException {
+        if (!ConfigManager.getConfig().configData.chatHistory.enabled) {
+            context.getSource().sendError(Text.literal("Chat history is disabled!"));
+            return 0;
+        }
+
+        var profiles = GameProfileArgumentType.getProfileArgument(context, "player");
+        if (profiles.size() != 1) {
+            context.getSource().sendError(Text.literal("Select exactly one player!"));
+            return 0;
+        }
+        var profile = profiles.iterator().next();
+        var source = context.getSource();
+        var server = source.getServer();
+
+        ChatHistory.query(server, profile.getId(), page, filter).whenComplete((result, throwable) -> server.execute(() -> {
+            if (throwable != null) {
+                StyledChatMod.LOGGER.error("Failed to read chat history", throwable);
+                source.sendError(Text.literal("Couldn't read chat history! See console for more info!"));
+                return;
+            }
+
+            if (result.entries().isEmpty()) {
+                source.sendFeedback(() -> Text.literal("No messages found" + (result.partial() ? " (search timed out, try narrower filter)" : "")), false);
+                return;
+            }
+
+            source.sendFeedback(() -> Text.literal("Messages of " + profile.getName() + " (page " + page + "):").formatted(Formatting.GOLD), false);
+            for (var entry : result.entries()) {
+                source.sendFeedback(() -> Text.empty()
+                        .append(Text.literal("[" + HISTORY_TIME_FORMAT.format(Instant.ofEpochMilli(entry.time())) + "] ").formatted(Formatting.GRAY))
+                        .append(entry.text()), false);
+            }
+
+            if (result.partial()) {
+                source.sendFeedback(() -> Text.literal("Search timed out, results might be incomplete").formatted(Formatting.GRAY, Formatting.ITALIC), false);
+            } else if (result.hasMore()) {
+                source.sendFeedback(() -> Text.literal("More on page " + (page + 1)).formatted(Formatting.GRAY, Formatting.ITALIC), false);
+            }
+        }));
+
+        return 1;
+    }
+
     private static int getProperty(CommandContext<ServerCommandSource> context, ChatStyleData.PropertyGetSet propertyGetSet) throws CommandSyntaxException {
         var player = EntityArgumentType.getPlayer(context, "player");
 
@@ -127,25 +300,45 @@ public class Commands {
     private static int setProperty(CommandContext<ServerCommandSource> context, ChatStyleData.PropertyGetSet propertySet) throws CommandSyntaxException {
         var players = EntityArgumentType.getPlayers(context, "players");
         var val = StringArgumentType.getString(context, "value");
+        var start = Util.getMeasuringTimeNano();
         for (var player : players) {
             propertySet.set(StyledChatUtils.getOrCreatePersonalData(player), val);
-            StyledChatUtils.updateStyle(player);
         }
-        context.getSource().sendFeedback(() -> Text.literal("Changed style of " + players.size() + " player(s)"), false);
+        var source = context.getSource();
+        StyledChatUtils.updateStylesAsync(source.getServer(), players).whenComplete((result, throwable) -> source.getServer().execute(() -> {
+            if (throwable != null) {
+                StyledChatMod.LOGGER.error("Failed to update style of players", throwable);
+                source.sendError(Text.literal("Couldn't update style of some players! See console for more info!"));
+                return;
+            }
+
+            var time = (Util.getMeasuringTimeNano() - start) / 1000000;
+            source.sendFeedback(() -> Text.literal("Changed style of " + players.size() + " player(s) in " + time + " ms"), false);
+        }));
         return players.size();
     }
 
     private static int clearProperty(CommandContext<ServerCommandSource> context, ChatStyleData.PropertyGetSet propertySet) throws CommandSyntaxException {
         var players = EntityArgumentType.getPlayers(context, "players");
+        var start = Util.getMeasuringTimeNano();
         for (var player : players) {
             if (propertySet != null) {
                 propertySet.set(StyledChatUtils.getOrCreatePersonalData(player), null);
             } else {
                 StyledChatUtils.clearPersonalStyleData(player);
             }
-            StyledChatUtils.updateStyle(player);
         }
-        context.getSource().sendFeedback(() -> Text.literal("Cleared style for " + players.size() + " player(s)"), false);
+        var source = context.getSource();
+        StyledChatUtils.updateStylesAsync(source.getServer(), players).whenComplete((result, throwable) -> source.getServer().execute(() -> {
+            if (throwable != null) {
+                StyledChatMod.LOGGER.error("Failed to clear style of players", throwable);
+                source.sendError(Text.literal("Couldn't clear style of some players! See console for more info!"));
+                return;
+            }
+
+            var time = (Util.getMeasuringTimeNano() - start) / 1000000;
+            source.sendFeedback(() -> Text.literal("Cleared style for " + players.size() + " player(s) in " + time + " ms"), false);
+        }));
         return players.size();
     }
 
@@ -178,6 +371,9 @@ public class Commands {
     private static int reloadConfig(CommandContext<ServerCommandSource> context) {
         var old = ConfigManager.getConfig().allPossibleAutoCompletionKeys;
         if (ConfigManager.loadConfig()) {
+            PermissionOptions.invalidateAll();
+            MentionParser.clearCache();
+            ChatChannels.rebuild(context.getSource().getServer());
             context.getSource().sendFeedback(() -> Text.literal("Reloaded config!"), false);
 
             for (var player : context.getSource().getServer().getPlayerManager().getPlayerList()) {
@@ -189,6 +385,32 @@ public class Commands {
         return 1;
     }
 
+    private static int stats(CommandContext<ServerCommandSource> context) {
+        var source = context.getSource();
+        var mspt = source.getServer().getAverageTickTime();
+        var disabled = LoadShedding.getDisabledStages();
+
+        source.sendFeedback(() -> Text.literal("Styled Chat stats:").formatted(Formatting.GOLD), false);
+        source.sendFeedback(() -> Text.literal(String.format("MSPT: %.2f", mspt)), false);
+        source.sendFeedback(() -> Text.literal("Degradation level: " + LoadShedding.getLevel()
+                + (disabled.isEmpty() ? "" : " (disabled: " + String.join(", ", disabled.stream().map((x) -> x.name).toList()) + ")")), false);
+        source.sendFeedback(() -> Text.literal("Queued chat messages: " + ChatQueue.size()), false);
+        source.sendFeedback(() -> Text.literal("Throttled broadcasts: " + BroadcastThrottle.DEATH.getSuppressedTotal() + " deaths, "
+                + BroadcastThrottle.ADVANCEMENT.getSuppressedTotal() + " advancements, " + BroadcastThrottle.PET_DEATH.getSuppressedTotal() + " pet deaths"), false);
+
+        source.sendFeedback(() -> Text.literal("Pipeline stages:"), false);
+        for (var phase : StyledChatPipeline.PHASES) {
+            for (var stage : phase.getStages()) {
+                var calls = stage.getCalls();
+                source.sendFeedback(() -> Text.literal(String.format(" %s/%s: %d calls, %.3f ms avg%s", phase.name, stage.id, calls,
+                        calls > 0 ? stage.getTotalNanos() / (double) calls / 1_000_000d : 0,
+                        stage.sideEffectFree ? ", " + stage.getCacheHits() + " cached" : "")).formatted(Formatting.GRAY), false);
+            }
+        }
+
+        return LoadShedding.getLevel();
+    }
+
     private static int about(CommandContext<ServerCommandSource> context) {
         for (var text : context.getSource().getEntity() instanceof ServerPlayerEntity ? GenericModInfo.getAboutFull() : GenericModInfo.getAboutConsole()) {
             context.getSource().sendFeedback(() -> text, false);
@@ -0,0 +1,33 @@
+package eu.pb4.styledchat.config;
+
+import eu.pb4.placeholders.api.PlaceholderContext;
+import eu.pb4.placeholders.api.node.TextNode;
+import eu.pb4.predicate.api.BuiltinPredicates;
+import eu.pb4.predicate.api.MinecraftPredicate;
+import eu.pb4.styledchat.config.data.ConfigData;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+public final class ChatChannel {
+    public static final String DEFAULT_FORMAT = "<gray>[${channel}]</gray> <${player}> ${message}";
+
+    public final String name;
+    public final MinecraftPredicate require;
+    @Nullable
+    public final String prefix;
+    private final TextNode format;
+
+    public ChatChannel(ConfigData.ChannelData data) {
+        this.name = data.name;
+        this.require = data.require != null ? data.require : BuiltinPredicates.operatorLevel(0);
+        this.prefix = data.prefix != null && !data.prefix.isEmpty() ? data.prefix : null;
+        this.format = ChatStyle.PARSER.parseNode(data.format != null ? data.format : DEFAULT_FORMAT);
+    }
+
+    public Text render(ServerPlayerEntity player, Text message) {
+        return ChatStyle.render(this.format, PlaceholderContext.of(player), Map.of("player", player.getDisplayName(), "message", message, "channel", Text.literal(this.name)));
+    }
+}
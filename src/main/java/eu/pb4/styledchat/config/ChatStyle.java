@@ -1,8 +1,6 @@
 package eu.pb4.styledchat.config;
 
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import eu.pb4.placeholders.api.ParserContext;
 import eu.pb4.placeholders.api.PlaceholderContext;
 import eu.pb4.placeholders.api.Placeholders;
 import eu.pb4.placeholders.api.node.EmptyNode;
@@ -13,82 +11,76 @@ import eu.pb4.placeholders.api.parsers.StaticPreParser;
 import eu.pb4.placeholders.api.parsers.TextParserV1;
 import eu.pb4.predicate.api.BuiltinPredicates;
 import eu.pb4.predicate.api.MinecraftPredicate;
+import eu.pb4.styledchat.StyledChatMod;
 import eu.pb4.styledchat.StyledChatUtils;
 import eu.pb4.styledchat.config.data.ChatStyleData;
 import eu.pb4.styledchat.config.data.ConfigData;
 import eu.pb4.styledchat.parser.DynamicNode;
+import eu.pb4.styledchat.parser.LinkTemplate;
+import eu.pb4.styledchat.parser.PlaceholderCache;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanOpenHashMap;
-import net.minecraft.entity.passive.TameableEntity;
-import net.minecraft.server.command.ServerCommandSource;
-import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
 public class ChatStyle {
+    public static final int LOCAL_CHAT_DIMENSION = Integer.MAX_VALUE;
     public static final ChatStyle EMPTY = new ChatStyle(new ChatStyleData());
     public static final NodeParser PARSER = NodeParser.merge(
-            TextParserV1.DEFAULT, Placeholders.DEFAULT_PLACEHOLDER_PARSER,
+            TextParserV1.DEFAULT, PlaceholderCache.PARSER,
             new PatternPlaceholderParser(PatternPlaceholderParser.PREDEFINED_PLACEHOLDER_PATTERN, DynamicNode::of),
             StaticPreParser.INSTANCE
     );
     public final MinecraftPredicate require;
     public final TextNode displayName;
-    public final TextNode chat;
-    public final TextNode join;
-    public final TextNode joinFirstTime;
-    public final TextNode joinRenamed;
-    public final TextNode left;
-    public final TextNode death;
-    public final TextNode advancementTask;
-    public final TextNode advancementChallenge;
-    public final TextNode advancementGoal;
-    public final TextNode privateMessageSent;
-    public final TextNode privateMessageReceived;
-    public final TextNode teamChatSent;
-    public final TextNode teamChatReceived;
-    public final TextNode sayCommand;
-    public final TextNode meCommand;
-    public final TextNode petDeath;
+    private final TextNode[] templates;
     public final TextNode spoilerStyle;
     public final String spoilerSymbol;
     public final TextNode linkStyle;
+    @Nullable
+    public final LinkTemplate linkTemplate;
     public final TextNode mentionStyle;
+    /**
+     * -1 if not set, 0 for global chat, {@link #LOCAL_CHAT_DIMENSION} for entire dimension
+     */
+    public final int localChatRadius;
+    /**
+     * Null if not set
+     */
+    @Nullable
+    public final RateLimit chatRateLimit;
+    /**
+     * Null if not set
+     */
+    @Nullable
+    public final WordFilterAction wordFilterAction;
     public final Map<String, TextNode> emoticons = new HashMap<>();
     public final Object2BooleanMap<String> formatting = new Object2BooleanOpenHashMap<>();
-    public final Map<Identifier, TextNode> custom = new HashMap<>();
 
     public ChatStyle(ChatStyleData data, ChatStyle defaultStyle) {
         this.require = data instanceof ConfigData.RequireChatStyleData data1 ? data1.require : BuiltinPredicates.operatorLevel(0);
 
         this.displayName = data.displayName != null ? parseText(data.displayName) : defaultStyle.displayName;
 
-        this.chat = data.messages.chat != null ? parseText(data.messages.chat) : defaultStyle.chat;
-        this.join = data.messages.joinedGame != null ? parseText(data.messages.joinedGame) : defaultStyle.join;
-        this.joinFirstTime = data.messages.joinedForFirstTime != null ? parseText(data.messages.joinedForFirstTime) : this.join;
-        this.joinRenamed = data.messages.joinedAfterNameChange != null ? parseText(data.messages.joinedAfterNameChange) : defaultStyle.joinRenamed;
-        this.left = data.messages.leftGame != null ? parseText(data.messages.leftGame) : defaultStyle.left;
-        this.death = data.messages.baseDeath != null ? parseText(data.messages.baseDeath) : defaultStyle.death;
-        this.advancementTask = data.messages.advancementTask != null ? parseText(data.messages.advancementTask) : defaultStyle.advancementTask;
-        this.advancementChallenge = data.messages.advancementChallenge != null ? parseText(data.messages.advancementChallenge) : defaultStyle.advancementChallenge;
-        this.advancementGoal = data.messages.advancementGoal != null ? parseText(data.messages.advancementGoal) : defaultStyle.advancementGoal;
-        this.privateMessageSent = data.messages.privateMessageSent != null ? parseText(data.messages.privateMessageSent) : defaultStyle.privateMessageSent;
-        this.privateMessageReceived = data.messages.privateMessageReceived != null ? parseText(data.messages.privateMessageReceived) : defaultStyle.privateMessageReceived;
-        this.teamChatSent = data.messages.sentTeamChat != null ? parseText(data.messages.sentTeamChat) : defaultStyle.teamChatSent;
-        this.teamChatReceived = data.messages.receivedTeamChat != null ? parseText(data.messages.receivedTeamChat) : defaultStyle.teamChatReceived;
-        this.sayCommand = data.messages.sayCommandMessage != null ? parseText(data.messages.sayCommandMessage) : defaultStyle.sayCommand;
-        this.meCommand = data.messages.meCommandMessage != null ? parseText(data.messages.meCommandMessage) : defaultStyle.meCommand;
-        this.petDeath = data.messages.petDeathMessage != null ? parseText(data.messages.petDeathMessage) : defaultStyle.petDeath;
+        this.templates = parseTemplates(data);
+        for (var kind : MessageKind.BUILTIN) {
+            if (this.templates[kind.index] == null) {
+                this.templates[kind.index] = kind.fallback != null ? this.templates[kind.fallback.index] : defaultStyle.getTemplate(kind);
+            }
+        }
 
         this.spoilerStyle = data.spoilerStyle != null ? parseText(data.spoilerStyle) : defaultStyle.spoilerStyle;
         this.spoilerSymbol = data.spoilerSymbol != null ? data.spoilerSymbol : defaultStyle.spoilerSymbol;
         this.linkStyle = data.linkStyle != null ? parseText(data.linkStyle) : defaultStyle.linkStyle;
+        this.linkTemplate = data.linkStyle != null ? new LinkTemplate(this.linkStyle) : defaultStyle.linkTemplate;
         this.mentionStyle = data.mentionStyle != null ? parseText(data.mentionStyle) : defaultStyle.mentionStyle;
+        this.localChatRadius = data.localChatRadius != null ? parseRadius(data.localChatRadius) : defaultStyle.localChatRadius;
+        this.chatRateLimit = data.chatRateLimit != null ? parseRateLimit(data.chatRateLimit) : defaultStyle.chatRateLimit;
+        this.wordFilterAction = data.wordFilter != null ? WordFilterAction.parse(data.wordFilter) : defaultStyle.wordFilterAction;
 
         for (var emoticon : data.emoticons.entrySet()) {
             if (emoticon.getKey().startsWith("$")) {
@@ -101,43 +93,22 @@ public class ChatStyle {
         for (var formatting : data.formatting.entrySet()) {
             this.formatting.put(formatting.getKey(), formatting.getValue().booleanValue());
         }
-
-        if (data.custom != null) {
-            for (var entry : data.custom.entrySet()) {
-                var id = Identifier.tryParse(entry.getKey());
-
-                if (id != null) {
-                    this.custom.put(id, parseText(entry.getValue()));
-                }
-            }
-        }
     }
 
     public ChatStyle(ChatStyleData data) {
         this.require = data instanceof ConfigData.RequireChatStyleData data1 ? data1.require : BuiltinPredicates.operatorLevel(0);
 
         this.displayName = data.displayName != null ? parseText(data.displayName) : null;
-        this.chat = data.messages.chat != null ? parseText(data.messages.chat) : null;
-        this.join = data.messages.joinedGame != null ? parseText(data.messages.joinedGame) : null;
-        this.joinRenamed = data.messages.joinedAfterNameChange != null ? parseText(data.messages.joinedAfterNameChange) : null;
-        this.joinFirstTime = data.messages.joinedForFirstTime != null ? parseText(data.messages.joinedForFirstTime) : null;
-        this.left = data.messages.leftGame != null ? parseText(data.messages.leftGame) : null;
-        this.death = data.messages.baseDeath != null ? parseText(data.messages.baseDeath) : null;
-        this.advancementTask = data.messages.advancementTask != null ? parseText(data.messages.advancementTask) : null;
-        this.advancementChallenge = data.messages.advancementChallenge != null ? parseText(data.messages.advancementChallenge) : null;
-        this.advancementGoal = data.messages.advancementGoal != null ? parseText(data.messages.advancementGoal) : null;
-        this.privateMessageSent = data.messages.privateMessageSent != null ? parseText(data.messages.privateMessageSent) : null;
-        this.privateMessageReceived = data.messages.privateMessageReceived != null ? parseText(data.messages.privateMessageReceived) : null;
-        this.teamChatSent = data.messages.sentTeamChat != null ? parseText(data.messages.sentTeamChat) : null;
-        this.teamChatReceived = data.messages.receivedTeamChat != null ? parseText(data.messages.receivedTeamChat) : null;
-        this.sayCommand = data.messages.sayCommandMessage != null ? parseText(data.messages.sayCommandMessage) : null;
-        this.meCommand = data.messages.meCommandMessage != null ? parseText(data.messages.meCommandMessage) : null;
-        this.petDeath = data.messages.petDeathMessage != null ? parseText(data.messages.petDeathMessage) : null;
+        this.templates = parseTemplates(data);
 
         this.spoilerStyle = data.spoilerStyle != null ? parseText(data.spoilerStyle) : null;
         this.spoilerSymbol = data.spoilerSymbol != null ? data.spoilerSymbol : null;
         this.linkStyle = data.linkStyle != null ? parseText(data.linkStyle) : null;
+        this.linkTemplate = this.linkStyle != null ? new LinkTemplate(this.linkStyle) : null;
         this.mentionStyle = data.mentionStyle != null ? parseText(data.mentionStyle) : null;
+        this.localChatRadius = data.localChatRadius != null ? parseRadius(data.localChatRadius) : -1;
+        this.chatRateLimit = data.chatRateLimit != null ? parseRateLimit(data.chatRateLimit) : null;
+        this.wordFilterAction = data.wordFilter != null ? WordFilterAction.parse(data.wordFilter) : null;
 
         for (var emoticon : data.emoticons.entrySet()) {
             if (emoticon.getKey().startsWith("$")) {
@@ -150,16 +121,57 @@ public class ChatStyle {
         for (var formatting : data.formatting.entrySet()) {
             this.formatting.put(formatting.getKey(), formatting.getValue().booleanValue());
         }
+    }
+
+    private static TextNode[] parseTemplates(ChatStyleData data) {
+        var custom = new HashMap<MessageKind, TextNode>();
 
         if (data.custom != null) {
             for (var entry : data.custom.entrySet()) {
                 var id = Identifier.tryParse(entry.getKey());
 
                 if (id != null) {
-                    this.custom.put(id, parseText(entry.getValue()));
+                    custom.put(MessageKind.custom(id), parseText(entry.getValue()));
                 }
             }
         }
+
+        // Size is read after registering custom kinds, so all of them fit
+        var templates = new TextNode[MessageKind.size()];
+
+        for (var kind : MessageKind.BUILTIN) {
+            var value = kind.get(data);
+            if (value != null) {
+                templates[kind.index] = parseText(value);
+            }
+        }
+
+        for (var entry : custom.entrySet()) {
+            templates[entry.getKey().index] = entry.getValue();
+        }
+
+        return templates;
+    }
+
+    private static int parseRadius(String input) {
+        if (input.equals("dimension")) {
+            return LOCAL_CHAT_DIMENSION;
+        }
+
+        try {
+            return Math.max(Integer.parseInt(input.trim()), 0);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Nullable
+    private static RateLimit parseRateLimit(String input) {
+        var limit = RateLimit.parse(input);
+        if (limit == null) {
+            StyledChatMod.LOGGER.warn("Invalid chat rate limit \"{}\", expected \"[messages]/[seconds]\" or \"none\". It will be ignored!", input);
+        }
+        return limit;
     }
 
     private static TextNode parseText(String input) {
@@ -265,211 +277,115 @@ public class ChatStyle {
     }
 
     @Nullable
-    public Text getChat(ServerPlayerEntity player, Text message) {
-        if (this.chat == null) {
-            return null;
-        } else if (this.chat == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-
-        return this.chat.toText(PlaceholderContext.of(player)
-                .asParserContext().with(DynamicNode.NODES, Map.of("player", player.getDisplayName(), "message", message)));
-    }
-
-    @Nullable
-    public Text getJoin(ServerPlayerEntity player) {
-        if (this.join == null) {
-            return null;
-        } else if (this.join == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.join.toText(PlaceholderContext.of(player).asParserContext().with(DynamicNode.NODES, Map.of("player", player.getDisplayName())));
+    public TextNode getTemplate(MessageKind kind) {
+        return kind.index < this.templates.length ? this.templates[kind.index] : null;
     }
 
     @Nullable
-    public Text getJoinFirstTime(ServerPlayerEntity player) {
-        if (this.joinFirstTime == null) {
-            return null;
-        } else if (this.joinFirstTime == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.joinFirstTime.toText(PlaceholderContext.of(player).asParserContext().with(DynamicNode.NODES, Map.of("player", player.getDisplayName())));
+    public Text render(MessageKind kind, PlaceholderContext context, Map<String, Text> args) {
+        return render(this.getTemplate(kind), context, args);
     }
 
     @Nullable
-    public Text getJoinRenamed(ServerPlayerEntity player, String oldName) {
-        if (this.joinRenamed == null) {
+    public static Text render(@Nullable TextNode template, PlaceholderContext context, Map<String, Text> args) {
+        if (template == null) {
             return null;
-        } else if (this.joinRenamed == EmptyNode.INSTANCE) {
+        } else if (template == EmptyNode.INSTANCE) {
             return StyledChatUtils.IGNORED_TEXT;
         }
 
-        return this.joinRenamed.toText(PlaceholderContext.of(player).asParserContext().with(DynamicNode.NODES, Map.of("player", player.getDisplayName(), "old_name", Text.literal(oldName))));
+        return template.toText(context.asParserContext().with(DynamicNode.NODES, args));
     }
 
     @Nullable
-    public Text getLeft(ServerPlayerEntity player) {
-        if (this.left == null) {
-            return null;
-        } else if (this.left == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.left.toText(PlaceholderContext.of(player).asParserContext().with(DynamicNode.NODES, Map.of("player", player.getDisplayName())));
-    }
-
-    @Nullable
-    public Text getDeath(ServerPlayerEntity player, Text vanillaMessage) {
-        if (this.death == null) {
-            return null;
-        } else if (this.death == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.death.toText(PlaceholderContext.of(player).asParserContext().with(DynamicNode.NODES, Map.of("player", player.getDisplayName(), "default_message", vanillaMessage)));
+    public TextNode getLink() {
+        return this.linkStyle;
     }
 
     @Nullable
-    public Text getAdvancementGoal(ServerPlayerEntity player, Text advancement) {
-        if (this.advancementGoal == null) {
-            return null;
-        } else if (this.advancementGoal == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.advancementGoal.toText(PlaceholderContext.of(player).asParserContext().with(DynamicNode.NODES, Map.of("player", player.getDisplayName(), "advancement", advancement)));
+    public LinkTemplate getLinkTemplate() {
+        return this.linkTemplate;
     }
 
     @Nullable
-    public Text getAdvancementTask(ServerPlayerEntity player, Text advancement) {
-        if (this.advancementTask == null) {
-            return null;
-        } else if (this.advancementTask == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.advancementTask.toText(PlaceholderContext.of(player).asParserContext().with(DynamicNode.NODES, Map.of("player", player.getDisplayName(), "advancement", advancement)));
+    public TextNode getMention() {
+        return this.mentionStyle;
     }
 
     @Nullable
-    public Text getAdvancementChallenge(ServerPlayerEntity player, Text advancement) {
-        if (this.advancementChallenge == null) {
-            return null;
-        } else if (this.advancementChallenge == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.advancementChallenge.toText(PlaceholderContext.of(player).asParserContext().with(DynamicNode.NODES, Map.of("player", player.getDisplayName(), "advancement", advancement)));
+    public TextNode getSpoilerStyle() {
+        return this.spoilerStyle;
     }
 
     @Nullable
-    public Text getSayCommand(ServerCommandSource source, Text message) {
-        if (this.sayCommand == null) {
-            return null;
-        } else if (this.sayCommand == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.sayCommand.toText(PlaceholderContext.of(source).asParserContext().with(DynamicNode.NODES, Map.of("player", source.getDisplayName(), "displayName", source.getDisplayName(), "message", message)));
+    public String getSpoilerSymbol() {
+        return this.spoilerSymbol;
     }
 
-    @Nullable
-    public Text getMeCommand(ServerCommandSource source, Text message) {
-        if (this.meCommand == null) {
-            return null;
-        } else if (this.meCommand == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.meCommand.toText(PlaceholderContext.of(source).asParserContext().with(DynamicNode.NODES, Map.of("player", source.getDisplayName(), "displayName", source.getDisplayName(), "message", message)));
-
+    public int getLocalChatRadius() {
+        return this.localChatRadius;
     }
 
     @Nullable
-    public Text getPrivateMessageSent(Text sender, Text receiver, Text message, PlaceholderContext context) {
-        if (this.privateMessageSent == null) {
-            return null;
-        } else if (this.privateMessageSent == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.privateMessageSent.toText(context.asParserContext().with(DynamicNode.NODES, Map.of("sender", sender, "receiver", receiver, "message", message)));
+    public RateLimit getChatRateLimit() {
+        return this.chatRateLimit;
     }
 
     @Nullable
-    public Text getPrivateMessageReceived(Text sender, Text receiver, Text message, PlaceholderContext context) {
-        if (this.privateMessageReceived == null) {
-            return null;
-        } else if (this.privateMessageReceived == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.privateMessageReceived.toText(context.asParserContext().with(DynamicNode.NODES, Map.of("sender", sender, "receiver", receiver, "message", message)));
+    public WordFilterAction getWordFilterAction() {
+        return this.wordFilterAction;
     }
 
-    @Nullable
-    public Text getTeamChatSent(Text team, Text displayName, Text message, ServerCommandSource context) {
-        if (this.teamChatSent == null) {
-            return null;
-        } else if (this.teamChatSent == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
-        }
-
-        return this.teamChatSent.toText(PlaceholderContext.of(context).asParserContext().with(DynamicNode.NODES, Map.of("team", team, "displayName", displayName, "message", message)));
-    }
+    /**
+     * Allows sending up to "messages" messages within "seconds" seconds, as burst or spread over time.
+     */
+    public record RateLimit(int messages, double seconds) {
+        public static final RateLimit UNLIMITED = new RateLimit(0, 0);
+
+        /**
+         * Parses "[messages]/[seconds]" (for example "5/10"), with "none" disabling the limit
+         */
+        @Nullable
+        public static RateLimit parse(String input) {
+            if (input.equals("none")) {
+                return UNLIMITED;
+            }
 
-    @Nullable
-    public Text getTeamChatReceived(Text team, Text displayName, Text message, ServerCommandSource context) {
-        if (this.teamChatReceived == null) {
-            return null;
-        } else if (this.teamChatReceived == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
+            var parts = input.split("/", 2);
+            try {
+                var messages = Integer.parseInt(parts[0].trim());
+                var seconds = parts.length == 2 ? Double.parseDouble(parts[1].trim()) : 1;
+                return messages > 0 && seconds > 0 ? new RateLimit(messages, seconds) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
         }
 
-        return this.teamChatReceived.toText(PlaceholderContext.of(context).asParserContext().with(DynamicNode.NODES, Map.of("team", team, "displayName", displayName, "message", message)));
-    }
-
-    @Nullable
-    public Text getCustom(Identifier identifier, Text displayName, Text message, @Nullable Text receiver, ServerCommandSource source) {
-        var node = this.custom.get(identifier);
-
-        if (node == null) {
-            return null;
-        } else if (node == EmptyNode.INSTANCE) {
-            return StyledChatUtils.IGNORED_TEXT;
+        public boolean isUnlimited() {
+            return this.messages <= 0;
         }
-
-        return node.toText(PlaceholderContext.of(source).asParserContext().with(DynamicNode.NODES, Map.of("receiver", receiver == null ? Text.empty() : receiver, "displayName", displayName, "message", message)));
     }
 
-    @Nullable
-    public TextNode getLink() {
-        return this.linkStyle;
-    }
-
-    @Nullable
-    public TextNode getMention() {
-        return this.mentionStyle;
-    }
-
-    @Nullable
-    public TextNode getSpoilerStyle() {
-        return this.spoilerStyle;
-    }
-
-    @Nullable
-    public String getSpoilerSymbol() {
-        return this.spoilerSymbol;
-    }
-
-    public Text getPetDeath(TameableEntity entity, Text vanillaMessage) {
-        if (this.petDeath == null) {
-            return null;
+    /**
+     * What happens with chat messages containing filtered words.
+     */
+    public record WordFilterAction(boolean mask, boolean block, boolean notify) {
+        public static final WordFilterAction NONE = new WordFilterAction(false, false, false);
+        public static final WordFilterAction MASK = new WordFilterAction(true, false, false);
+
+        /**
+         * Parses comma separated list of actions (for example "mask,notify"), with "none" disabling filtering
+         */
+        public static WordFilterAction parse(String input) {
+            boolean mask = false, block = false, notify = false;
+            for (var part : input.split(",")) {
+                switch (part.trim()) {
+                    case "mask" -> mask = true;
+                    case "block" -> block = true;
+                    case "notify" -> notify = true;
+                }
+            }
+            return new WordFilterAction(mask, block, notify);
         }
-
-        return this.petDeath.toText(PlaceholderContext.of(entity).asParserContext().with(DynamicNode.NODES, Map.of("pet", entity.getDisplayName(), "default_message", vanillaMessage)));
     }
 }
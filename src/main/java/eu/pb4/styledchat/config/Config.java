@@ -4,28 +4,30 @@ package eu.pb4.styledchat.config;
 import eu.pb4.placeholders.api.PlaceholderContext;
 import eu.pb4.placeholders.api.node.TextNode;
 import eu.pb4.placeholders.api.parsers.TextParserV1;
-import eu.pb4.placeholders.api.parsers.TextParserV1.TextTag;
 import eu.pb4.predicate.api.BuiltinPredicates;
 import eu.pb4.predicate.api.PredicateContext;
 import eu.pb4.styledchat.config.data.ChatStyleData;
 import eu.pb4.styledchat.config.data.ConfigData;
-import eu.pb4.styledchat.config.data.ConfigData.RequireChatStyleData;
+import eu.pb4.styledchat.parser.LinkTemplate;
+import eu.pb4.styledchat.parser.WordFilter;
 import it.unimi.dsi.fastutil.objects.Object2BooleanOpenHashMap;
-import net.minecraft.entity.passive.TameableEntity;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
-import net.minecraft.util.Identifier;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.Map.Entry;
 
 public final class Config {
     public final ConfigData configData;
     private final ChatStyle defaultStyle;
     private final List<ChatStyle> permissionStyle;
     public final Set<String> allPossibleAutoCompletionKeys;
+    public final List<ChatChannel> channels;
+    private final Map<String, ChatChannel> channelsByName;
+    public final Set<String> uncachedPlaceholders;
+    @Nullable
+    public final WordFilter wordFilter;
 
     public Config(ConfigData data) {
         this.configData = data;
@@ -33,6 +35,18 @@ public final class Config {
         this.permissionStyle = new ArrayList<>();
 
         this.allPossibleAutoCompletionKeys = new HashSet<>();
+        this.uncachedPlaceholders = new HashSet<>(data.placeholderCache.uncached);
+        this.wordFilter = WordFilter.create(data.wordFilter);
+
+        this.channels = new ArrayList<>();
+        this.channelsByName = new HashMap<>();
+        for (var entry : data.channels) {
+            if (entry.name != null && !this.channelsByName.containsKey(entry.name)) {
+                var channel = new ChatChannel(entry);
+                this.channels.add(channel);
+                this.channelsByName.put(channel.name, channel);
+            }
+        }
 
         for (var key : this.defaultStyle.emoticons.keySet()) {
             this.allPossibleAutoCompletionKeys.add(":" + key + ":");
@@ -75,246 +89,113 @@ public final class Config {
         return this.defaultStyle.getDisplayName(player, vanillaDisplayName);
     }
 
-    public Text getChat(ServerPlayerEntity player, Text message) {
-        var context = PredicateContext.of(player);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getChat(player, message);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getChat(player, message);
-    }
-
-    public Text getJoin(ServerPlayerEntity player) {
-        var context = PredicateContext.of(player);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getJoin(player);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getJoin(player);
-    }
-
-    public Text getJoinFirstTime(ServerPlayerEntity player) {
-        var context = PredicateContext.of(player);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getJoinFirstTime(player);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        Text text = this.defaultStyle.getJoinFirstTime(player);
-        if (text != null) {
-            return text;
-        }
-        return this.getJoin(player);
-    }
-
-    public Text getJoinRenamed(ServerPlayerEntity player, String oldName) {
-        var context = PredicateContext.of(player);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getJoinRenamed(player, oldName);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getJoinRenamed(player, oldName);
-    }
-
-    public Text getLeft(ServerPlayerEntity player) {
-        var context = PredicateContext.of(player);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getLeft(player);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getLeft(player);
-    }
-
-    public Text getDeath(ServerPlayerEntity player, Text vanillaMessage) {
-        var context = PredicateContext.of(player);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getDeath(player, vanillaMessage);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getDeath(player, vanillaMessage);
-    }
-
-    public Text getAdvancementTask(ServerPlayerEntity player, Text advancement) {
-        var context = PredicateContext.of(player);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getAdvancementTask(player, advancement);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getAdvancementTask(player, advancement);
-    }
-
-    public Text getAdvancementGoal(ServerPlayerEntity player, Text advancement) {
-        var context = PredicateContext.of(player);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getAdvancementGoal(player, advancement);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getAdvancementGoal(player, advancement);
-    }
-
-    public Text getAdvancementChallenge(ServerPlayerEntity player, Text advancement) {
-        var context = PredicateContext.of(player);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getAdvancementChallenge(player, advancement);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getAdvancementChallenge(player, advancement);
+    @Nullable
+    public ChatChannel getChannel(String name) {
+        return this.channelsByName.get(name);
     }
 
-    public Text getSayCommand(ServerCommandSource source, Text message) {
-        var context = PredicateContext.of(source);
+    /**
+     * Finds template of kind, checking permission styles first and default style after it.
+     */
+    @Nullable
+    public TextNode getTemplate(MessageKind kind, PredicateContext context) {
         for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getSayCommand(source, message);
-                if (text != null) {
-                    return text;
-                }
+            var template = entry.getTemplate(kind);
+            if (template != null && entry.require.test(context).success()) {
+                return template;
             }
         }
-        return this.defaultStyle.getSayCommand(source, message);
-    }
 
-    public Text getMeCommand(ServerCommandSource source, Text message) {
-        var context = PredicateContext.of(source);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context).success()) {
-                Text text = entry.getMeCommand(source, message);
-                if (text != null) {
-                    return text;
-                }
-            }
+        var template = this.defaultStyle.getTemplate(kind);
+        if (template == null && kind.fallback != null) {
+            return this.getTemplate(kind.fallback, context);
         }
-        return this.defaultStyle.getMeCommand(source, message);
+        return template;
     }
 
-    public Text getPrivateMessageSent(Text sender, Text receiver, Text message, ServerCommandSource context) {
-        var placeholderContext = PlaceholderContext.of(context);
-
-        var context2 = PredicateContext.of(context);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context2).success()) {
-                Text text = entry.getPrivateMessageSent(sender, receiver, message, placeholderContext);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getPrivateMessageSent(sender, receiver, message, placeholderContext);
+    @Nullable
+    public Text render(MessageKind kind, PlaceholderContext context, Map<String, Text> args) {
+        return ChatStyle.render(this.getTemplate(kind, PredicateContext.of(context.source())), context, args);
     }
 
-    public Text getPrivateMessageReceived(Text sender, Text receiver, Text message, ServerCommandSource context) {
-        var placeholderContext = PlaceholderContext.of(context);
-
-        var context2 = PredicateContext.of(context);
+    public TextNode getSpoilerStyle(PlaceholderContext ctx) {
+        var context2 = PredicateContext.of(ctx.source());
         for (var entry : this.permissionStyle) {
             if (entry.require.test(context2).success()) {
-                Text text = entry.getPrivateMessageReceived(sender, receiver, message, placeholderContext);
+                var text = entry.getSpoilerStyle();
                 if (text != null) {
                     return text;
                 }
             }
         }
-        return this.defaultStyle.getPrivateMessageReceived(sender, receiver, message, placeholderContext);
+        return this.defaultStyle.getSpoilerStyle();
     }
 
-    public Text getTeamChatSent(Text team, Text displayName, Text message, ServerCommandSource context) {
-        var context2 = PredicateContext.of(context);
+    public String getSpoilerSymbole(PlaceholderContext ctx) {
+        var context2 = PredicateContext.of(ctx.source());
         for (var entry : this.permissionStyle) {
             if (entry.require.test(context2).success()) {
-                Text text = entry.getTeamChatSent(team, displayName, message, context);
+                var text = entry.getSpoilerSymbol();
                 if (text != null) {
                     return text;
                 }
             }
         }
-        return this.defaultStyle.getTeamChatSent(team, displayName, message, context);
+        return this.defaultStyle.getSpoilerSymbol();
     }
 
-    public Text getTeamChatReceived(Text team, Text displayName, Text message, ServerCommandSource context) {
-        var context2 = PredicateContext.of(context);
+    public int getLocalChatRadius(PlaceholderContext ctx) {
+        var context2 = PredicateContext.of(ctx.source());
         for (var entry : this.permissionStyle) {
             if (entry.require.test(context2).success()) {
-                Text text = entry.getTeamChatReceived(team, displayName, message, context);
-                if (text != null) {
-                    return text;
+                var radius = entry.getLocalChatRadius();
+                if (radius != -1) {
+                    return radius;
                 }
             }
         }
-        return this.defaultStyle.getTeamChatReceived(team, displayName, message, context);
+        return Math.max(this.defaultStyle.getLocalChatRadius(), 0);
     }
 
-    public TextNode getSpoilerStyle(PlaceholderContext ctx) {
+    public ChatStyle.RateLimit getChatRateLimit(PlaceholderContext ctx) {
         var context2 = PredicateContext.of(ctx.source());
         for (var entry : this.permissionStyle) {
             if (entry.require.test(context2).success()) {
-                var text = entry.getSpoilerStyle();
-                if (text != null) {
-                    return text;
+                var limit = entry.getChatRateLimit();
+                if (limit != null) {
+                    return limit;
                 }
             }
         }
-        return this.defaultStyle.getSpoilerStyle();
+        var limit = this.defaultStyle.getChatRateLimit();
+        return limit != null ? limit : ChatStyle.RateLimit.UNLIMITED;
     }
 
-    public String getSpoilerSymbole(PlaceholderContext ctx) {
+    public ChatStyle.WordFilterAction getWordFilterAction(PlaceholderContext ctx) {
         var context2 = PredicateContext.of(ctx.source());
         for (var entry : this.permissionStyle) {
             if (entry.require.test(context2).success()) {
-                var text = entry.getSpoilerSymbol();
-                if (text != null) {
-                    return text;
+                var action = entry.getWordFilterAction();
+                if (action != null) {
+                    return action;
                 }
             }
         }
-        return this.defaultStyle.getSpoilerSymbol();
+        var action = this.defaultStyle.getWordFilterAction();
+        return action != null ? action : ChatStyle.WordFilterAction.MASK;
     }
 
-    public TextNode getLinkStyle(PlaceholderContext ctx) {
+    public LinkTemplate getLinkTemplate(PlaceholderContext ctx) {
         var context2 = PredicateContext.of(ctx.source());
         for (var entry : this.permissionStyle) {
             if (entry.require.test(context2).success()) {
-                var text = entry.getLink();
-                if (text != null) {
-                    return text;
+                var template = entry.getLinkTemplate();
+                if (template != null) {
+                    return template;
                 }
             }
         }
-        return this.defaultStyle.getLink();
+        return this.defaultStyle.getLinkTemplate();
     }
 
     public TextNode getMentionStyle(PlaceholderContext ctx) {
@@ -330,19 +211,6 @@ public final class Config {
         return this.defaultStyle.getMention();
     }
 
-    public Text getPetDeath(TameableEntity entity, Text vanillaMessage) {
-        var context2 = PredicateContext.of(entity);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context2).success()) {
-                var text = this.defaultStyle.getPetDeath(entity, vanillaMessage);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-        return this.defaultStyle.getPetDeath(entity, vanillaMessage);
-    }
-
     public Map<String, TextNode> getEmotes(ServerCommandSource source) {
         var base = new HashMap<>(this.defaultStyle.emoticons);
         var context = PredicateContext.of(source);
@@ -376,19 +244,4 @@ public final class Config {
 
         return base;
     }
-
-    @Nullable
-    public Text getCustom(Identifier identifier, Text displayName, Text message, @Nullable Text receiver, ServerCommandSource source) {
-        var context2 = PredicateContext.of(source);
-        for (var entry : this.permissionStyle) {
-            if (entry.require.test(context2).success()) {
-                var text = entry.getCustom(identifier, displayName, message, receiver, source);
-                if (text != null) {
-                    return text;
-                }
-            }
-        }
-
-        return this.defaultStyle.getCustom(identifier, displayName, message, receiver, source);
-    }
 }
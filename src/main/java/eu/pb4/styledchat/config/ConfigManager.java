@@ -15,6 +15,7 @@ import net.fabricmc.loader.api.FabricLoader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 
 public class ConfigManager {
@@ -90,6 +91,21 @@ public class ConfigManager {
         return new JsonObject();
     }
 
+    /**
+     * Loads non-empty lines of file from config directory, skipping ones starting with "#".
+     */
+    public static List<String> loadLines(String key) {
+        var path = FabricLoader.getInstance().getConfigDir().resolve(key);
+        if (Files.exists(path)) {
+            try {
+                return Files.readAllLines(path, StandardCharsets.UTF_8).stream().map(String::trim).filter(x -> !x.isEmpty() && !x.startsWith("#")).toList();
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+        }
+        return List.of();
+    }
+
     public static JsonObject loadJsonBuiltin(String baseValue) {
         var path = StyledChatMod.CONTAINER.findPath("emoji/" + baseValue + ".json");
         if (path.isPresent()) {
@@ -0,0 +1,120 @@
+package eu.pb4.styledchat.config;
+
+import eu.pb4.styledchat.config.data.ChatStyleData;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of message types with styleable templates. Every kind gets an index,
+ * which is used to look up its template in {@link ChatStyle}.
+ * Custom message types (from "custom_message_types") are registered on first use.
+ */
+public final class MessageKind {
+    private static final List<MessageKind> BUILTIN_MUTABLE = new ArrayList<>();
+    public static final List<MessageKind> BUILTIN = Collections.unmodifiableList(BUILTIN_MUTABLE);
+    private static final Map<Identifier, MessageKind> CUSTOM = new ConcurrentHashMap<>();
+    private static volatile int size = 0;
+
+    public static final MessageKind CHAT = builtin("chat", null);
+    public static final MessageKind JOIN = builtin("joined_the_game", null);
+    public static final MessageKind JOIN_FIRST_TIME = builtin("joined_for_first_time", JOIN);
+    public static final MessageKind JOIN_RENAMED = builtin("joined_after_name_change", null);
+    public static final MessageKind LEFT = builtin("left_game", null);
+    public static final MessageKind DEATH = builtin("base_death", null);
+    public static final MessageKind ADVANCEMENT_TASK = builtin("advancement_task", null);
+    public static final MessageKind ADVANCEMENT_CHALLENGE = builtin("advancement_challenge", null);
+    public static final MessageKind ADVANCEMENT_GOAL = builtin("advancement_goal", null);
+    public static final MessageKind TEAM_CHAT_SENT = builtin("sent_team_chat", null);
+    public static final MessageKind TEAM_CHAT_RECEIVED = builtin("received_team_chat", null);
+    public static final MessageKind PRIVATE_MESSAGE_SENT = builtin("sent_private_message", null);
+    public static final MessageKind PRIVATE_MESSAGE_RECEIVED = builtin("received_private_message", null);
+    public static final MessageKind SAY_COMMAND = builtin("say_command", null);
+    public static final MessageKind ME_COMMAND = builtin("me_command", null);
+    public static final MessageKind PET_DEATH = builtin("pet_death", null);
+    public static final MessageKind JOIN_SUMMARY = builtin("joined_the_game_summary", null);
+    public static final MessageKind LEFT_SUMMARY = builtin("left_game_summary", null);
+    public static final MessageKind DEATH_SUMMARY = builtin("death_summary", null);
+    public static final MessageKind ADVANCEMENT_SUMMARY = builtin("advancement_summary", null);
+    public static final MessageKind PET_DEATH_SUMMARY = builtin("pet_death_summary", null);
+    public static final MessageKind LOCAL_CHAT = builtin("local_chat", null);
+    public static final MessageKind RATE_LIMITED = builtin("rate_limited", null);
+    public static final MessageKind DUPLICATE_SUMMARY = builtin("duplicate_summary", null);
+    public static final MessageKind DUPLICATE_MUTED = builtin("duplicate_muted", null);
+    public static final MessageKind WORD_FILTER_BLOCKED = builtin("word_filter_blocked", null);
+    public static final MessageKind WORD_FILTER_NOTIFY = builtin("word_filter_notify", null);
+    public static final MessageKind JOIN_SUMMARY_ALL = builtin("joined_the_game_summary_all", null);
+    public static final MessageKind LEFT_SUMMARY_ALL = builtin("left_game_summary_all", null);
+    public static final MessageKind QUEUE_REJECTED = builtin("queue_rejected", null);
+
+    public final String name;
+    public final int index;
+    /**
+     * Kind used when style doesn't define this one. Always has lower index.
+     */
+    @Nullable
+    public final MessageKind fallback;
+    @Nullable
+    public final Identifier customId;
+    @Nullable
+    private final ChatStyleData.PropertyGetSet property;
+
+    private MessageKind(String name, int index, @Nullable MessageKind fallback, @Nullable Identifier customId, @Nullable ChatStyleData.PropertyGetSet property) {
+        this.name = name;
+        this.index = index;
+        this.fallback = fallback;
+        this.customId = customId;
+        this.property = property;
+    }
+
+    private static MessageKind builtin(String name, @Nullable MessageKind fallback) {
+        var kind = new MessageKind(name, size++, fallback, null, ChatStyleData.PROPERTIES.get("message_formats." + name));
+        BUILTIN_MUTABLE.add(kind);
+        return kind;
+    }
+
+    public static MessageKind custom(Identifier identifier) {
+        var kind = CUSTOM.get(identifier);
+        if (kind != null) {
+            return kind;
+        }
+
+        synchronized (CUSTOM) {
+            return CUSTOM.computeIfAbsent(identifier, (id) -> new MessageKind(id.toString(), size++, null, id, null));
+        }
+    }
+
+    @Nullable
+    public static MessageKind getCustom(Identifier identifier) {
+        return CUSTOM.get(identifier);
+    }
+
+    /**
+     * Amount of registered kinds. Indexes of all kinds are lower than it.
+     */
+    public static int size() {
+        return size;
+    }
+
+    public boolean isCustom() {
+        return this.customId != null;
+    }
+
+    /**
+     * Returns template string of builtin kinds from data
+     */
+    @Nullable
+    public String get(ChatStyleData data) {
+        return this.property != null ? this.property.get(data) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageKind[" + this.name + "]";
+    }
+}
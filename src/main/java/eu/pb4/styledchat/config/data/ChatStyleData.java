@@ -3,22 +3,24 @@ package eu.pb4.styledchat.config.data;
 
 import com.google.gson.annotations.SerializedName;
 import eu.pb4.styledchat.StyledChatUtils;
-import me.lucko.fabric.api.permissions.v0.Options;
+import eu.pb4.styledchat.other.PermissionOptions;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.util.Formatting;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public class ChatStyleData implements Cloneable {
     public static ChatStyleData DEFAULT = createDefault();
+    /**
+     * Accessors of all String properties, keyed by their json path. New String fields need to be registered in static block below.
+     */
     public static final Map<String, PropertyGetSet> PROPERTIES;
 
     @SerializedName("display_name")
@@ -35,6 +37,12 @@ public class ChatStyleData implements Cloneable {
     public String spoilerStyle;
     @SerializedName("spoiler_symbol")
     public String spoilerSymbol;
+    @SerializedName("local_chat_radius")
+    public String localChatRadius;
+    @SerializedName("chat_rate_limit")
+    public String chatRateLimit;
+    @SerializedName("word_filter")
+    public String wordFilter;
 
     @SerializedName("formatting")
     public Map<String, Boolean> formatting = new HashMap<>();
@@ -78,6 +86,34 @@ public class ChatStyleData implements Cloneable {
         public String meCommandMessage;
         @SerializedName("pet_death")
         public String petDeathMessage;
+        @SerializedName("joined_the_game_summary")
+        public String joinedGameSummary;
+        @SerializedName("left_game_summary")
+        public String leftGameSummary;
+        @SerializedName("death_summary")
+        public String deathSummary;
+        @SerializedName("advancement_summary")
+        public String advancementSummary;
+        @SerializedName("pet_death_summary")
+        public String petDeathSummary;
+        @SerializedName("local_chat")
+        public String localChat;
+        @SerializedName("rate_limited")
+        public String rateLimited;
+        @SerializedName("duplicate_summary")
+        public String duplicateSummary;
+        @SerializedName("duplicate_muted")
+        public String duplicateMuted;
+        @SerializedName("word_filter_blocked")
+        public String wordFilterBlocked;
+        @SerializedName("word_filter_notify")
+        public String wordFilterNotify;
+        @SerializedName("joined_the_game_summary_all")
+        public String joinedGameSummaryAll;
+        @SerializedName("left_game_summary_all")
+        public String leftGameSummaryAll;
+        @SerializedName("queue_rejected")
+        public String queueRejected;
 
         public Messages clone() {
             try {
@@ -106,12 +142,18 @@ public class ChatStyleData implements Cloneable {
 
 
     public void fillPermissionOptionProvider(ServerCommandSource source) {
+        var options = PermissionOptions.get(source, PROPERTIES.keySet());
+
+        if (options.isEmpty()) {
+            return;
+        }
+
         for (var prop : PROPERTIES.entrySet()) {
             if (prop.getValue().get(this) == null) {
-                var value = Options.get(source, "styled_chat." + prop.getKey());
+                var value = options.get(prop.getKey());
 
-                if (value.isPresent()) {
-                    prop.getValue().set(this, value.get());
+                if (value != null) {
+                    prop.getValue().set(this, value);
                 }
             }
         }
@@ -137,6 +179,20 @@ public class ChatStyleData implements Cloneable {
         data.messages.sayCommandMessage = "[${player}] ${message}";
         data.messages.meCommandMessage = "<lang:'chat.type.emote':'${player}':'${message}'>";
         data.messages.petDeathMessage = "${default_message}";
+        data.messages.joinedGameSummary = "<yellow>${players} and ${others} others joined the game</yellow>";
+        data.messages.leftGameSummary = "<yellow>${players} and ${others} others left the game</yellow>";
+        data.messages.joinedGameSummaryAll = "<yellow>${players} joined the game</yellow>";
+        data.messages.leftGameSummaryAll = "<yellow>${players} left the game</yellow>";
+        data.messages.queueRejected = "<red>You are sending messages too fast, your message wasn't sent!</red>";
+        data.messages.deathSummary = "<gray>...and ${count} more deaths</gray>";
+        data.messages.advancementSummary = "<gray>...and ${count} more advancements</gray>";
+        data.messages.petDeathSummary = "<gray>...and ${count} more of your pets died</gray>";
+        data.messages.localChat = "<gray>[Local]</gray> <${player}> ${message}";
+        data.messages.rateLimited = "<red>You are sending messages too fast! Wait ${seconds} seconds.</red>";
+        data.messages.duplicateSummary = "<gray>(${player} repeated last message, x${count})</gray>";
+        data.messages.duplicateMuted = "<red>You are muted for repeating messages! Wait ${seconds} seconds.</red>";
+        data.messages.wordFilterBlocked = "<red>Your message contains blocked words!</red>";
+        data.messages.wordFilterNotify = "<gray>[Filter] ${player}: ${message}</gray>";
 
         data.linkStyle = "<underline><c:#7878ff>${link}";
         data.mentionStyle = "<c:#7878ff>%player:displayname%";
@@ -209,25 +265,19 @@ public class ChatStyleData implements Cloneable {
     }
 
     public interface PropertyGetSet {
-        static PropertyGetSet of(Field field) {
+        /**
+         * Creates accessor from lambdas doing plain field access, so calls can be inlined.
+         */
+        static PropertyGetSet of(Function<ChatStyleData, String> getter, BiConsumer<ChatStyleData, String> setter) {
             return new PropertyGetSet() {
                 @Override
                 public void set(ChatStyleData data, String value) {
-                    try {
-                        field.set(data, value);
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
+                    setter.accept(data, value);
                 }
 
                 @Override
                 public String get(ChatStyleData data) {
-                    try {
-                        return (String) field.get(data);
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                    return null;
+                    return getter.apply(data);
                 }
             };
         }
@@ -250,29 +300,6 @@ public class ChatStyleData implements Cloneable {
             };
         }
 
-        static PropertyGetSet ofMessage(Field field) {
-            return new PropertyGetSet() {
-                @Override
-                public void set(ChatStyleData data, String value) {
-                    try {
-                        field.set(data.messages, value);
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-                @Override
-                public String get(ChatStyleData data) {
-                    try {
-                        return (String) field.get(data.messages);
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                    return null;
-                }
-            };
-        }
-
         void set(ChatStyleData data, String value);
         @Nullable
         String get(ChatStyleData data);
@@ -280,16 +307,47 @@ public class ChatStyleData implements Cloneable {
 
     static {
         PROPERTIES = new HashMap<>();
-        for (var field : ChatStyleData.class.getFields()) {
-            if (!Modifier.isStatic(field.getModifiers())) {
-                if (field.getType() == String.class) {
-                    PROPERTIES.put(field.getAnnotation(SerializedName.class).value(), PropertyGetSet.of(field));
-                } else if (field.getType() == Messages.class) {
-                    for (var field2 : Messages.class.getFields()) {
-                        PROPERTIES.put("message_formats." + field2.getAnnotation(SerializedName.class).value(), PropertyGetSet.ofMessage(field2));
-                    }
-                }
-            }
-        }
+        property("display_name", (data) -> data.displayName, (data, value) -> data.displayName = value);
+        property("link_style", (data) -> data.linkStyle, (data, value) -> data.linkStyle = value);
+        property("mention_style", (data) -> data.mentionStyle, (data, value) -> data.mentionStyle = value);
+        property("spoiler_style", (data) -> data.spoilerStyle, (data, value) -> data.spoilerStyle = value);
+        property("spoiler_symbol", (data) -> data.spoilerSymbol, (data, value) -> data.spoilerSymbol = value);
+        property("local_chat_radius", (data) -> data.localChatRadius, (data, value) -> data.localChatRadius = value);
+        property("chat_rate_limit", (data) -> data.chatRateLimit, (data, value) -> data.chatRateLimit = value);
+        property("word_filter", (data) -> data.wordFilter, (data, value) -> data.wordFilter = value);
+        property("message_formats.chat", (data) -> data.messages.chat, (data, value) -> data.messages.chat = value);
+        property("message_formats.joined_the_game", (data) -> data.messages.joinedGame, (data, value) -> data.messages.joinedGame = value);
+        property("message_formats.joined_after_name_change", (data) -> data.messages.joinedAfterNameChange, (data, value) -> data.messages.joinedAfterNameChange = value);
+        property("message_formats.joined_for_first_time", (data) -> data.messages.joinedForFirstTime, (data, value) -> data.messages.joinedForFirstTime = value);
+        property("message_formats.left_game", (data) -> data.messages.leftGame, (data, value) -> data.messages.leftGame = value);
+        property("message_formats.base_death", (data) -> data.messages.baseDeath, (data, value) -> data.messages.baseDeath = value);
+        property("message_formats.advancement_task", (data) -> data.messages.advancementTask, (data, value) -> data.messages.advancementTask = value);
+        property("message_formats.advancement_challenge", (data) -> data.messages.advancementChallenge, (data, value) -> data.messages.advancementChallenge = value);
+        property("message_formats.advancement_goal", (data) -> data.messages.advancementGoal, (data, value) -> data.messages.advancementGoal = value);
+        property("message_formats.sent_team_chat", (data) -> data.messages.sentTeamChat, (data, value) -> data.messages.sentTeamChat = value);
+        property("message_formats.received_team_chat", (data) -> data.messages.receivedTeamChat, (data, value) -> data.messages.receivedTeamChat = value);
+        property("message_formats.sent_private_message", (data) -> data.messages.privateMessageSent, (data, value) -> data.messages.privateMessageSent = value);
+        property("message_formats.received_private_message", (data) -> data.messages.privateMessageReceived, (data, value) -> data.messages.privateMessageReceived = value);
+        property("message_formats.say_command", (data) -> data.messages.sayCommandMessage, (data, value) -> data.messages.sayCommandMessage = value);
+        property("message_formats.me_command", (data) -> data.messages.meCommandMessage, (data, value) -> data.messages.meCommandMessage = value);
+        property("message_formats.pet_death", (data) -> data.messages.petDeathMessage, (data, value) -> data.messages.petDeathMessage = value);
+        property("message_formats.joined_the_game_summary", (data) -> data.messages.joinedGameSummary, (data, value) -> data.messages.joinedGameSummary = value);
+        property("message_formats.left_game_summary", (data) -> data.messages.leftGameSummary, (data, value) -> data.messages.leftGameSummary = value);
+        property("message_formats.death_summary", (data) -> data.messages.deathSummary, (data, value) -> data.messages.deathSummary = value);
+        property("message_formats.advancement_summary", (data) -> data.messages.advancementSummary, (data, value) -> data.messages.advancementSummary = value);
+        property("message_formats.pet_death_summary", (data) -> data.messages.petDeathSummary, (data, value) -> data.messages.petDeathSummary = value);
+        property("message_formats.local_chat", (data) -> data.messages.localChat, (data, value) -> data.messages.localChat = value);
+        property("message_formats.rate_limited", (data) -> data.messages.rateLimited, (data, value) -> data.messages.rateLimited = value);
+        property("message_formats.duplicate_summary", (data) -> data.messages.duplicateSummary, (data, value) -> data.messages.duplicateSummary = value);
+        property("message_formats.duplicate_muted", (data) -> data.messages.duplicateMuted, (data, value) -> data.messages.duplicateMuted = value);
+        property("message_formats.word_filter_blocked", (data) -> data.messages.wordFilterBlocked, (data, value) -> data.messages.wordFilterBlocked = value);
+        property("message_formats.word_filter_notify", (data) -> data.messages.wordFilterNotify, (data, value) -> data.messages.wordFilterNotify = value);
+        property("message_formats.joined_the_game_summary_all", (data) -> data.messages.joinedGameSummaryAll, (data, value) -> data.messages.joinedGameSummaryAll = value);
+        property("message_formats.left_game_summary_all", (data) -> data.messages.leftGameSummaryAll, (data, value) -> data.messages.leftGameSummaryAll = value);
+        property("message_formats.queue_rejected", (data) -> data.messages.queueRejected, (data, value) -> data.messages.queueRejected = value);
+    }
+
+    private static void property(String name, Function<ChatStyleData, String> getter, BiConsumer<ChatStyleData, String> setter) {
+        PROPERTIES.put(name, PropertyGetSet.of(getter, setter));
     }
 }
@@ -30,6 +30,84 @@ public class ConfigData {
         public boolean respectColors = true;
     }
 
+    @SerializedName("input_limits")
+    public InputLimits inputLimits = new InputLimits();
+
+    public static class InputLimits {
+        @SerializedName("max_nodes")
+        public int maxNodes = 1024;
+        @SerializedName("max_depth")
+        public int maxDepth = 32;
+        @SerializedName("max_time_ms")
+        public int maxTimeMs = 20;
+    }
+
+    @SerializedName("load_shedding")
+    public LoadShedding loadShedding = new LoadShedding();
+
+    public static class LoadShedding {
+        @SerializedName("enabled")
+        public boolean enabled = false;
+        @SerializedName("threshold_mspt")
+        public float thresholdMspt = 50;
+        @SerializedName("recover_mspt")
+        public float recoverMspt = 40;
+        @SerializedName("step_ticks")
+        public int stepTicks = 100;
+        @SerializedName("order")
+        public List<String> order = new ArrayList<>(List.of("custom_renders", "mentions", "emoticons", "links", "markdown", "legacy_formatting"));
+    }
+
+    @SerializedName("chat_queue")
+    public ChatQueue chatQueue = new ChatQueue();
+
+    public static class ChatQueue {
+        @SerializedName("enabled")
+        public boolean enabled = false;
+        @SerializedName("tick_budget_ms")
+        public int tickBudgetMs = 5;
+        @SerializedName("max_queued_per_sender")
+        public int maxQueuedPerSender = 5;
+        @SerializedName("overflow")
+        public String overflow = "reject";
+    }
+
+    @SerializedName("word_filter")
+    public WordFilter wordFilter = new WordFilter();
+
+    public static class WordFilter {
+        @SerializedName("enabled")
+        public boolean enabled = false;
+        @SerializedName("words")
+        public List<String> words = new ArrayList<>();
+        @SerializedName("whole_words")
+        public boolean wholeWords = true;
+        @SerializedName("mask_character")
+        public String maskCharacter = "*";
+    }
+
+    @SerializedName("duplicate_filter")
+    public DuplicateFilter duplicateFilter = new DuplicateFilter();
+
+    public static class DuplicateFilter {
+        @SerializedName("enabled")
+        public boolean enabled = false;
+        @SerializedName("window_ms")
+        public int windowMs = 30000;
+        @SerializedName("history")
+        public int history = 5;
+        @SerializedName("similarity")
+        public double similarity = 0.8;
+        @SerializedName("allowed_repeats")
+        public int allowedRepeats = 1;
+        @SerializedName("action")
+        public String action = "collapse";
+        @SerializedName("mute_after")
+        public int muteAfter = 3;
+        @SerializedName("mute_seconds")
+        public int muteSeconds = 60;
+    }
+
     @SerializedName("auto_completion")
     public AutoCompletion autoCompletion = new AutoCompletion();
 
@@ -42,6 +120,98 @@ public class ConfigData {
         public boolean emoticons = false;
     }
 
+    @SerializedName("join_leave_coalescing")
+    public JoinLeaveCoalescing joinLeaveCoalescing = new JoinLeaveCoalescing();
+
+    public static class JoinLeaveCoalescing {
+        @SerializedName("enabled")
+        public boolean enabled = false;
+        @SerializedName("window_ms")
+        public int windowMs = 3000;
+        @SerializedName("threshold")
+        public int threshold = 8;
+        @SerializedName("shown_names")
+        public int shownNames = 2;
+    }
+
+    @SerializedName("broadcast_throttling")
+    public BroadcastThrottling broadcastThrottling = new BroadcastThrottling();
+
+    public static class BroadcastThrottling {
+        @SerializedName("enabled")
+        public boolean enabled = false;
+        @SerializedName("window_ms")
+        public int windowMs = 5000;
+        @SerializedName("death_budget")
+        public int deathBudget = 10;
+        @SerializedName("advancement_budget")
+        public int advancementBudget = 10;
+        @SerializedName("pet_death_budget")
+        public int petDeathBudget = 5;
+    }
+
+    @SerializedName("local_chat")
+    public LocalChat localChat = new LocalChat();
+
+    public static class LocalChat {
+        @SerializedName("global_prefix")
+        public String globalPrefix = "!";
+    }
+
+    @SerializedName("channels")
+    public List<ChannelData> channels = new ArrayList<>();
+
+    public static class ChannelData {
+        @SerializedName("name")
+        public String name;
+        @SerializedName("require")
+        public MinecraftPredicate require;
+        @SerializedName("prefix")
+        public String prefix;
+        @SerializedName("format")
+        public String format;
+    }
+
+    @SerializedName("chat_log")
+    public ChatLog chatLog = new ChatLog();
+
+    public static class ChatLog {
+        @SerializedName("enabled")
+        public boolean enabled = false;
+        @SerializedName("console_echo")
+        public boolean consoleEcho = true;
+        @SerializedName("directory")
+        public String directory = "logs/styled-chat";
+        @SerializedName("max_file_size_kb")
+        public int maxFileSizeKb = 10240;
+        @SerializedName("compress")
+        public boolean compress = true;
+        @SerializedName("flush_interval_ms")
+        public int flushIntervalMs = 1000;
+    }
+
+    @SerializedName("placeholder_cache")
+    public PlaceholderCache placeholderCache = new PlaceholderCache();
+
+    public static class PlaceholderCache {
+        @SerializedName("enabled")
+        public boolean enabled = true;
+        @SerializedName("uncached")
+        public List<String> uncached = new ArrayList<>();
+    }
+
+    @SerializedName("chat_history")
+    public ChatHistory chatHistory = new ChatHistory();
+
+    public static class ChatHistory {
+        @SerializedName("enabled")
+        public boolean enabled = false;
+        @SerializedName("segment_records")
+        public int segmentRecords = 10000;
+        @SerializedName("max_segments")
+        public int maxSegments = 50;
+    }
+
     @SerializedName("default")
     public ChatStyleData defaultStyle = ChatStyleData.createDefault();
 
@@ -0,0 +1,12 @@
+package eu.pb4.styledchat.config.data;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class IgnoreData {
+    @SerializedName("ignored")
+    public List<UUID> ignored = new ArrayList<>();
+}
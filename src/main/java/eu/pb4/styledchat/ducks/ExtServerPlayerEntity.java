@@ -0,0 +1,13 @@
+package eu.pb4.styledchat.ducks;
+
+import eu.pb4.styledchat.config.ChatStyle;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface ExtServerPlayerEntity {
+    void styledChat$setPendingStyle(@Nullable CompletableFuture<ChatStyle> style);
+
+    @Nullable
+    CompletableFuture<ChatStyle> styledChat$takePendingStyle();
+}
@@ -1,5 +1,6 @@
 package eu.pb4.styledchat.ducks;
 
+import eu.pb4.styledchat.config.ChatChannel;
 import net.minecraft.network.message.MessageType;
 import net.minecraft.network.message.SignedMessage;
 import net.minecraft.registry.RegistryKey;
@@ -31,4 +32,19 @@ public interface ExtSignedMessage {
     void styledChat_setSource(ServerCommandSource source);
     @Nullable
     ServerCommandSource styledChat_getSource();
+
+    void styledChat_setLocalRadius(int radius);
+    /**
+     * Radius of local chat message, 0 if it's sent to everyone.
+     */
+    int styledChat_getLocalRadius();
+
+    void styledChat_setChannel(@Nullable ChatChannel channel);
+    @Nullable
+    ChatChannel styledChat_getChannel();
+
+    /**
+     * Drops source and arguments after message got delivered, so they don't stay in memory with message.
+     */
+    void styledChat_release();
 }
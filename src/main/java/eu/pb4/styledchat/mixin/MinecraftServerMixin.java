@@ -17,6 +17,11 @@ public class MinecraftServerMixin {
         StyledChatMod.serverStarting((MinecraftServer) (Object) this);
     }
 
+    @Inject(method = "tick", at = @At("TAIL"))
+    private void styledChat_tick(CallbackInfo ci) {
+        StyledChatMod.serverTick((MinecraftServer) (Object) this);
+    }
+
     @Inject(method = "shutdown", at = @At("TAIL"))
     private void styledChat_registerStopping(CallbackInfo ci) {
         StyledChatMod.serverStopped((MinecraftServer) (Object) this);
@@ -1,6 +1,8 @@
 package eu.pb4.styledchat.mixin;
 
 import eu.pb4.styledchat.StyledChatStyles;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.other.BroadcastThrottle;
 import net.minecraft.advancement.PlayerAdvancementTracker;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
@@ -17,6 +19,11 @@ public class PlayerAdvancementTrackerMixin {
 
     @ModifyArg(method = "method_53637", at = @At(value = "INVOKE", target = "Lnet/minecraft/server/PlayerManager;broadcast(Lnet/minecraft/text/Text;Z)V"))
     private Text styledChat_changeAdvancementMessage(Text text) {
+        if (!BroadcastThrottle.ADVANCEMENT.tryAcquire()) {
+            this.owner.server.sendMessage(text);
+            return StyledChatUtils.IGNORED_TEXT;
+        }
+
         var translatableText = (TranslatableTextContent) text.getContent();
         Text advancement = (Text) translatableText.getArgs()[1];
 
@@ -4,6 +4,11 @@ import eu.pb4.styledchat.StyledChatStyles;
 import eu.pb4.styledchat.StyledChatUtils;
 import eu.pb4.styledchat.config.ConfigManager;
 import eu.pb4.styledchat.ducks.ExtSignedMessage;
+import eu.pb4.styledchat.other.ChatChannels;
+import eu.pb4.styledchat.other.ChatQueue;
+import eu.pb4.styledchat.other.IgnoreList;
+import eu.pb4.styledchat.other.JoinLeaveCoalescer;
+import eu.pb4.styledchat.other.LocalChat;
 import net.minecraft.network.ClientConnection;
 import net.minecraft.network.message.MessageType;
 import net.minecraft.network.message.SignedMessage;
@@ -14,6 +19,7 @@ import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.stat.Stats;
 import net.minecraft.text.Text;
 import net.minecraft.text.TranslatableTextContent;
+import org.jetbrains.annotations.Nullable;
 import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
@@ -24,6 +30,8 @@ import org.spongepowered.asm.mixin.injection.ModifyArg;
 import org.spongepowered.asm.mixin.injection.Redirect;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.util.function.Predicate;
+
 
 @Mixin(PlayerManager.class)
 public class PlayerManagerMixin {
@@ -39,13 +47,25 @@ public class PlayerManagerMixin {
         this.styledChat_temporaryPlayer = player;
     }
 
+    @Inject(method = "onPlayerConnect", at = @At(value = "INVOKE", target = "Lnet/minecraft/server/PlayerManager;loadPlayerData(Lnet/minecraft/server/network/ServerPlayerEntity;)Lnet/minecraft/nbt/NbtCompound;", shift = At.Shift.AFTER))
+    private void styledChat_prepareStyle(ClientConnection connection, ServerPlayerEntity player, ConnectedClientData clientData, CallbackInfo ci) {
+        StyledChatUtils.prepareStyleAsync(player);
+    }
+
     @Inject(method = "onPlayerConnect", at = @At("RETURN"))
     private void styledChat_removeStoredPlayer(ClientConnection connection, ServerPlayerEntity player, ConnectedClientData clientData, CallbackInfo ci) {
         this.styledChat_temporaryPlayer = null;
+        ChatChannels.update(player);
+        IgnoreList.load(player);
     }
 
     @ModifyArg(method = "onPlayerConnect", at = @At(value = "INVOKE", target = "Lnet/minecraft/server/PlayerManager;broadcast(Lnet/minecraft/text/Text;Z)V"))
     private Text styledChat_updatePlayerNameAfterMessage(Text text) {
+        return JoinLeaveCoalescer.JOIN.handle(this.server, this.styledChat_temporaryPlayer, this.styledChat_getJoinMessage(text));
+    }
+
+    @Unique
+    private Text styledChat_getJoinMessage(Text text) {
         if (this.styledChat_temporaryPlayer.getStatHandler().getStat(Stats.CUSTOM.getOrCreateStat(Stats.LEAVE_GAME)) == 0) {
             return StyledChatStyles.getJoinFirstTime(this.styledChat_temporaryPlayer);
         }
@@ -63,15 +83,38 @@ public class PlayerManagerMixin {
         StyledChatUtils.sendAutoCompletion(player, ConfigManager.getConfig().allPossibleAutoCompletionKeys);
     }
 
+    @Inject(method = "broadcast(Lnet/minecraft/network/message/SignedMessage;Ljava/util/function/Predicate;Lnet/minecraft/server/network/ServerPlayerEntity;Lnet/minecraft/network/message/MessageType$Parameters;)V", at = @At("HEAD"), cancellable = true)
+    private void styledChat_broadcastLimited(SignedMessage message, Predicate<ServerPlayerEntity> shouldSendFiltered, @Nullable ServerPlayerEntity sender, MessageType.Parameters params, CallbackInfo ci) {
+        if (sender == null) {
+            return;
+        }
+
+        if (ChatQueue.enqueue(this.server, message, sender, params)) {
+            ci.cancel();
+            return;
+        }
+
+        var channel = ExtSignedMessage.of(message).styledChat_getChannel();
+        var radius = ExtSignedMessage.of(message).styledChat_getLocalRadius();
+        if (channel != null) {
+            ChatChannels.broadcast(this.server, message, shouldSendFiltered, sender, params, channel);
+            ChatQueue.finishImmediate();
+            ci.cancel();
+        } else if (radius > 0) {
+            LocalChat.broadcast(this.server, message, shouldSendFiltered, sender, params, radius);
+            ChatQueue.finishImmediate();
+            ci.cancel();
+        }
+    }
+
+    @Inject(method = "broadcast(Lnet/minecraft/network/message/SignedMessage;Ljava/util/function/Predicate;Lnet/minecraft/server/network/ServerPlayerEntity;Lnet/minecraft/network/message/MessageType$Parameters;)V", at = @At("TAIL"))
+    private void styledChat_releaseMessageData(SignedMessage message, Predicate<ServerPlayerEntity> shouldSendFiltered, ServerPlayerEntity sender, MessageType.Parameters params, CallbackInfo ci) {
+        ExtSignedMessage.of(message).styledChat_release();
+        ChatQueue.finishImmediate();
+    }
+
     @Redirect(method = "broadcast(Lnet/minecraft/network/message/SignedMessage;Ljava/util/function/Predicate;Lnet/minecraft/server/network/ServerPlayerEntity;Lnet/minecraft/network/message/MessageType$Parameters;)V", at = @At(value = "INVOKE", target = "Lnet/minecraft/server/MinecraftServer;logChatMessage(Lnet/minecraft/text/Text;Lnet/minecraft/network/message/MessageType$Parameters;Ljava/lang/String;)V"), require = 0)
     private void styledChat_fixServerLogs(MinecraftServer instance, Text text, MessageType.Parameters parameters, String string, SignedMessage signedMessage) {
-        var out = ((ExtSignedMessage) (Object) signedMessage).styledChat_getArg("override");
-        if (out != null) {
-            if (out != StyledChatUtils.IGNORED_TEXT) {
-                this.server.sendMessage(out);
-            }
-        } else {
-            this.server.logChatMessage(text, parameters, string);
-        }
+        StyledChatUtils.logChatMessage(this.server, signedMessage, parameters, string);
     }
 }
@@ -6,12 +6,25 @@ import eu.pb4.styledchat.StyledChatStyles;
 import eu.pb4.styledchat.config.ChatStyle;
 import eu.pb4.styledchat.config.ConfigManager;
 import eu.pb4.styledchat.ducks.ExtPlayNetworkHandler;
+import eu.pb4.styledchat.ducks.ExtServerPlayerEntity;
 import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.other.ChatChannels;
+import eu.pb4.styledchat.other.ChatQueue;
+import eu.pb4.styledchat.other.ChatRateLimiter;
+import eu.pb4.styledchat.other.DuplicateFilter;
+import eu.pb4.styledchat.other.IgnoreList;
+import eu.pb4.styledchat.other.JoinLeaveCoalescer;
+import eu.pb4.styledchat.other.PermissionOptions;
+import eu.pb4.styledchat.parser.MentionParser;
+import eu.pb4.styledchat.parser.WordFilter;
+import eu.pb4.styledchat.other.PlayerChunkIndex;
 import net.minecraft.network.ClientConnection;
+import net.minecraft.network.message.LastSeenMessageList;
 import net.minecraft.network.message.MessageDecorator;
 import net.minecraft.network.message.MessageType;
 import net.minecraft.network.message.SignedMessage;
 import net.minecraft.network.packet.c2s.common.ClientOptionsC2SPacket;
+import net.minecraft.network.packet.c2s.play.ChatMessageC2SPacket;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ConnectedClientData;
 import net.minecraft.server.network.ServerPlayNetworkHandler;
@@ -24,7 +37,10 @@ import org.spongepowered.asm.mixin.injection.ModifyArg;
 import org.spongepowered.asm.mixin.injection.Redirect;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Mixin(ServerPlayNetworkHandler.class)
 public abstract class ServerPlayNetworkManagerMixin implements ExtPlayNetworkHandler {
@@ -37,7 +53,53 @@ public abstract class ServerPlayNetworkManagerMixin implements ExtPlayNetworkHan
 
     @ModifyArg(method = "cleanUp", at = @At(value = "INVOKE", target = "Lnet/minecraft/server/PlayerManager;broadcast(Lnet/minecraft/text/Text;Z)V"))
     private Text styledChat_replaceDisconnectMessage(Text text) {
-        return StyledChatStyles.getLeft(this.player);
+        return JoinLeaveCoalescer.LEFT.handle(this.player.server, this.player, StyledChatStyles.getLeft(this.player));
+    }
+
+    @Inject(method = "cleanUp", at = @At("TAIL"))
+    private void styledChat_clearCachedOptions(CallbackInfo ci) {
+        PermissionOptions.invalidate(this.player.getUuid());
+        MentionParser.invalidate(this.player.getUuid());
+        ChatRateLimiter.remove(this.player.getUuid());
+        DuplicateFilter.remove(this.player);
+        ChatQueue.remove(this.player);
+    }
+
+    @Inject(method = "cleanUp", at = @At("TAIL"))
+    private void styledChat_removeFromChunkIndex(CallbackInfo ci) {
+        PlayerChunkIndex.remove(this.player);
+    }
+
+    @Inject(method = "cleanUp", at = @At("TAIL"))
+    private void styledChat_removeFromChannels(CallbackInfo ci) {
+        ChatChannels.remove(this.player);
+    }
+
+    @Inject(method = "cleanUp", at = @At("TAIL"))
+    private void styledChat_unloadIgnoreList(CallbackInfo ci) {
+        IgnoreList.unload(this.player);
+    }
+
+    @Inject(method = "method_44900", at = @At(value = "INVOKE", target = "Lnet/minecraft/network/message/MessageDecorator;decorate(Lnet/minecraft/server/network/ServerPlayerEntity;Lnet/minecraft/text/Text;)Lnet/minecraft/text/Text;"), cancellable = true)
+    private void styledChat_limitRate(CallbackInfo ci) {
+        // Message is already validated and unpacked at this point, so skipping it doesn't break the chain
+        if (!ChatRateLimiter.tryAcquire(this.player)) {
+            ci.cancel();
+        }
+    }
+
+    @Inject(method = "method_44900", at = @At(value = "INVOKE", target = "Lnet/minecraft/network/message/MessageDecorator;decorate(Lnet/minecraft/server/network/ServerPlayerEntity;Lnet/minecraft/text/Text;)Lnet/minecraft/text/Text;"), cancellable = true)
+    private void styledChat_filterWords(ChatMessageC2SPacket packet, Optional<LastSeenMessageList> lastSeen, CallbackInfo ci) {
+        if (!WordFilter.check(this.player, packet.chatMessage())) {
+            ci.cancel();
+        }
+    }
+
+    @Inject(method = "method_44900", at = @At(value = "INVOKE", target = "Lnet/minecraft/network/message/MessageDecorator;decorate(Lnet/minecraft/server/network/ServerPlayerEntity;Lnet/minecraft/text/Text;)Lnet/minecraft/text/Text;"), cancellable = true)
+    private void styledChat_filterDuplicates(ChatMessageC2SPacket packet, Optional<LastSeenMessageList> lastSeen, CallbackInfo ci) {
+        if (!DuplicateFilter.check(this.player, packet.chatMessage())) {
+            ci.cancel();
+        }
     }
 
     @Redirect(method = "method_44900", at = @At(value = "INVOKE", target = "Lnet/minecraft/network/message/MessageDecorator;decorate(Lnet/minecraft/server/network/ServerPlayerEntity;Lnet/minecraft/text/Text;)Lnet/minecraft/text/Text;"))
@@ -57,13 +119,31 @@ public abstract class ServerPlayNetworkManagerMixin implements ExtPlayNetworkHan
     @Override
     public ChatStyle styledChat$getStyle() {
         if (this.styledChat$style == null) {
-            this.styledChat$style = StyledChatUtils.createStyleOf(this.player);
+            var pending = ((ExtServerPlayerEntity) this.player).styledChat$takePendingStyle();
+
+            if (pending != null) {
+                try {
+                    // Waiting for almost finished async build is cheaper than doing it again
+                    this.styledChat$style = pending.get(StyledChatUtils.PENDING_STYLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (Throwable e) {
+                    if (!(e instanceof TimeoutException)) {
+                        StyledChatMod.LOGGER.warn("Failed to prepare style of " + this.player.getGameProfile().getName(), e);
+                    }
+                }
+            }
+
+            if (this.styledChat$style == null) {
+                this.styledChat$style = StyledChatUtils.createStyleOf(this.player);
+            }
         }
         return this.styledChat$style;
     }
 
     @Override
     public void styledChat$setStyle(ChatStyle style) {
+        ((ExtServerPlayerEntity) this.player).styledChat$takePendingStyle();
+        // Rate limit can come from personal style, so it needs to be resolved again
+        ChatRateLimiter.remove(this.player.getUuid());
         this.styledChat$style = style;
     }
 
@@ -2,32 +2,85 @@ package eu.pb4.styledchat.mixin;
 
 import eu.pb4.styledchat.StyledChatStyles;
 import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ChatStyle;
+import eu.pb4.styledchat.ducks.ExtServerPlayerEntity;
+import eu.pb4.styledchat.other.BroadcastThrottle;
+import eu.pb4.styledchat.other.PlayerChunkIndex;
 import net.minecraft.entity.damage.DamageTracker;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
+import org.jetbrains.annotations.Nullable;
 import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.*;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.util.concurrent.CompletableFuture;
+
 
 @Mixin(ServerPlayerEntity.class)
-public abstract class ServerPlayerEntityMixin {
+public abstract class ServerPlayerEntityMixin implements ExtServerPlayerEntity {
     @Shadow
     @Final
     public MinecraftServer server;
 
+    @Unique
+    private CompletableFuture<ChatStyle> styledChat$pendingStyle;
+
+    @Unique
+    private boolean styledChat$deathMessageThrottled;
+
     @Redirect(method = "onDeath", at = @At(value = "INVOKE", target = "Lnet/minecraft/entity/damage/DamageTracker;getDeathMessage()Lnet/minecraft/text/Text;"))
     private Text styledChat$replaceDeathMessage(DamageTracker instance) {
+        if (!BroadcastThrottle.DEATH.tryAcquire((ServerPlayerEntity) (Object) this)) {
+            // Still needed for death screen, but skips rendering of style
+            var message = instance.getDeathMessage();
+            this.server.sendMessage(message);
+            this.styledChat$deathMessageThrottled = true;
+            return message;
+        }
+
+        this.styledChat$deathMessageThrottled = false;
         return StyledChatStyles.getDeath((ServerPlayerEntity) (Object) this, instance.getDeathMessage());
     }
 
+    @ModifyArg(method = "onDeath", at = {
+            @At(value = "INVOKE", target = "Lnet/minecraft/server/PlayerManager;broadcast(Lnet/minecraft/text/Text;Z)V"),
+            @At(value = "INVOKE", target = "Lnet/minecraft/server/PlayerManager;sendToTeam(Lnet/minecraft/entity/player/PlayerEntity;Lnet/minecraft/text/Text;)V"),
+            @At(value = "INVOKE", target = "Lnet/minecraft/server/PlayerManager;sendToOtherTeams(Lnet/minecraft/entity/player/PlayerEntity;Lnet/minecraft/text/Text;)V")
+    })
+    private Text styledChat$hideThrottledDeathMessage(Text text) {
+        if (this.styledChat$deathMessageThrottled) {
+            this.styledChat$deathMessageThrottled = false;
+            return StyledChatUtils.IGNORED_TEXT;
+        }
+        return text;
+    }
+
+    @Inject(method = "tick", at = @At("TAIL"))
+    private void styledChat$updateChunkIndex(CallbackInfo ci) {
+        PlayerChunkIndex.update((ServerPlayerEntity) (Object) this);
+    }
+
     @Inject(method = "sendMessageToClient", at = @At("HEAD"), cancellable = true)
     private void styledChat$excludeSendingOfHiddenMessages(Text message, boolean ignore, CallbackInfo ci) {
         if (message == StyledChatUtils.IGNORED_TEXT) {
             ci.cancel();
         }
     }
+
+    @Override
+    public void styledChat$setPendingStyle(@Nullable CompletableFuture<ChatStyle> style) {
+        this.styledChat$pendingStyle = style;
+    }
+
+    @Override
+    public @Nullable CompletableFuture<ChatStyle> styledChat$takePendingStyle() {
+        var style = this.styledChat$pendingStyle;
+        this.styledChat$pendingStyle = null;
+        return style;
+    }
 }
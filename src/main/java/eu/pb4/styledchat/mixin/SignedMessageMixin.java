@@ -1,7 +1,9 @@
 package eu.pb4.styledchat.mixin;
 
 import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ChatChannel;
 import eu.pb4.styledchat.ducks.ExtSignedMessage;
+import eu.pb4.styledchat.other.SignedMessageArgs;
 import net.minecraft.network.message.*;
 import net.minecraft.registry.RegistryKey;
 import net.minecraft.server.command.ServerCommandSource;
@@ -16,25 +18,39 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.Redirect;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
-import java.util.HashMap;
-import java.util.Map;
-
 @Mixin(SignedMessage.class)
 public class SignedMessageMixin implements ExtSignedMessage {
     @Shadow
     @Final
     private MessageBody signedBody;
     @Unique
-    private final Map<String, Text> styledChat_args = new HashMap<>();
+    @Nullable
+    private SignedMessageArgs styledChat_args = null;
+    @Unique
+    private boolean styledChat_argsShared = false;
     @Unique
     private RegistryKey<MessageType> styledChat_type = null;
 
     @Unique
     private ServerCommandSource styledChat_source = null;
 
+    @Unique
+    private int styledChat_localRadius = 0;
+
+    @Unique
+    @Nullable
+    private ChatChannel styledChat_channel = null;
+
     @Override
     public void styledChat_setArg(String name, Text arg) {
-        this.styledChat_args.put(name, arg);
+        if (this.styledChat_args == null) {
+            this.styledChat_args = new SignedMessageArgs();
+        } else if (this.styledChat_argsShared) {
+            this.styledChat_args = this.styledChat_args.copy();
+            this.styledChat_argsShared = false;
+        }
+
+        this.styledChat_args.set(name, arg);
     }
 
     @Override
@@ -44,7 +60,12 @@ public class SignedMessageMixin implements ExtSignedMessage {
 
     @Override
     public Text styledChat_getArg(String name) {
-        return this.styledChat_args.getOrDefault(name, StyledChatUtils.EMPTY_TEXT);
+        if (this.styledChat_args == null) {
+            return StyledChatUtils.EMPTY_TEXT;
+        }
+
+        var arg = this.styledChat_args.get(name);
+        return arg != null ? arg : StyledChatUtils.EMPTY_TEXT;
     }
 
     @Override
@@ -67,6 +88,34 @@ public class SignedMessageMixin implements ExtSignedMessage {
         return this.styledChat_source;
     }
 
+    @Override
+    public void styledChat_setLocalRadius(int radius) {
+        this.styledChat_localRadius = radius;
+    }
+
+    @Override
+    public int styledChat_getLocalRadius() {
+        return this.styledChat_localRadius;
+    }
+
+    @Override
+    public void styledChat_setChannel(@Nullable ChatChannel channel) {
+        this.styledChat_channel = channel;
+    }
+
+    @Override
+    public @Nullable ChatChannel styledChat_getChannel() {
+        return this.styledChat_channel;
+    }
+
+    @Override
+    public void styledChat_release() {
+        this.styledChat_args = null;
+        this.styledChat_argsShared = false;
+        this.styledChat_source = null;
+        this.styledChat_channel = null;
+    }
+
     @Inject(method = "withUnsignedContent", at = @At("RETURN"))
     private void styledChat$copyData1(Text unsignedContent, CallbackInfoReturnable<SignedMessage> cir) {
         this.styledChat$copyData(cir.getReturnValue());
@@ -96,7 +145,14 @@ public class SignedMessageMixin implements ExtSignedMessage {
         }
 
         mixin.styledChat_type = this.styledChat_type;
-        mixin.styledChat_args.putAll(this.styledChat_args);
+        if (this.styledChat_args != null) {
+            // Data is shared between messages until one of them modifies it
+            mixin.styledChat_args = this.styledChat_args;
+            mixin.styledChat_argsShared = true;
+            this.styledChat_argsShared = true;
+        }
         mixin.styledChat_source = this.styledChat_source;
+        mixin.styledChat_localRadius = this.styledChat_localRadius;
+        mixin.styledChat_channel = this.styledChat_channel;
     }
 }
@@ -1,6 +1,8 @@
 package eu.pb4.styledchat.mixin;
 
 import eu.pb4.styledchat.StyledChatStyles;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.other.BroadcastThrottle;
 import net.minecraft.entity.passive.TameableEntity;
 import net.minecraft.text.Text;
 import org.spongepowered.asm.mixin.Mixin;
@@ -11,6 +13,11 @@ import org.spongepowered.asm.mixin.injection.ModifyArg;
 public class TameableEntityMixin {
     @ModifyArg(method = "onDeath", at = @At(value = "INVOKE", target = "Lnet/minecraft/entity/LivingEntity;sendMessage(Lnet/minecraft/text/Text;)V"))
     private Text styledChat_replaceDeathMessage(Text text) {
+        var owner = ((TameableEntity) (Object) this).getOwnerUuid();
+        if (owner != null && !BroadcastThrottle.PET_DEATH.tryAcquire(owner)) {
+            return StyledChatUtils.IGNORED_TEXT;
+        }
+
         return StyledChatStyles.getPetDeath((TameableEntity) (Object) this, text);
     }
 }
@@ -2,6 +2,8 @@ package eu.pb4.styledchat.mixin.commands;
 
 import com.mojang.brigadier.context.CommandContext;
 import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.ducks.ExtSignedMessage;
+import eu.pb4.styledchat.parser.WordFilter;
 import net.minecraft.network.message.MessageType;
 import net.minecraft.network.message.SignedMessage;
 import net.minecraft.server.PlayerManager;
@@ -15,8 +17,13 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 @Mixin(MeCommand.class)
 public class MeCommandMixin {
-    @Inject(method = "method_43645", at = @At("HEAD"))
+    @Inject(method = "method_43645", at = @At("HEAD"), cancellable = true)
     private static void styledChat_formatText(CommandContext<ServerCommandSource> commandContext, SignedMessage signedMessage, CallbackInfo ci) {
+        if (!WordFilter.check(commandContext.getSource(), signedMessage.getSignedContent())) {
+            ExtSignedMessage.of(signedMessage).styledChat_release();
+            ci.cancel();
+            return;
+        }
         StyledChatUtils.modifyForSending(signedMessage, commandContext.getSource(), MessageType.EMOTE_COMMAND);
     }
 }
@@ -6,7 +6,9 @@ import eu.pb4.styledchat.ducks.ExtSignedMessage;
 import eu.pb4.styledchat.StyledChatUtils;
 import eu.pb4.styledchat.config.ConfigManager;
 import eu.pb4.styledchat.other.ExtendedSentMessage;
+import eu.pb4.styledchat.other.IgnoreList;
 import eu.pb4.styledchat.other.StyledChatSentMessage;
+import eu.pb4.styledchat.parser.WordFilter;
 import net.minecraft.network.message.MessageType;
 import net.minecraft.network.message.MessageType.Parameters;
 import net.minecraft.network.message.SentMessage;
@@ -25,12 +27,23 @@ import java.util.Collection;
 
 @Mixin(MessageCommand.class)
 public class MessageCommandMixin {
-    @Inject(method = "execute", at = @At("HEAD"))
+    @Inject(method = "execute", at = @At("HEAD"), cancellable = true)
     private static void styledChat_formatOgText(ServerCommandSource serverCommandSource, Collection<ServerPlayerEntity> collection, SignedMessage signedMessage, CallbackInfo ci) {
+        if (!WordFilter.check(serverCommandSource, signedMessage.getSignedContent())) {
+            ExtSignedMessage.of(signedMessage).styledChat_release();
+            ci.cancel();
+            return;
+        }
+
         var input = StyledChatUtils.maybeFormatFor(serverCommandSource, signedMessage.getSignedContent(), signedMessage.getContent());
         ExtSignedMessage.setArg(signedMessage, "base_input", input);
     }
 
+    @Inject(method = "execute", at = @At("TAIL"))
+    private static void styledChat_releaseMessageData(ServerCommandSource serverCommandSource, Collection<ServerPlayerEntity> collection, SignedMessage signedMessage, CallbackInfo ci) {
+        ExtSignedMessage.of(signedMessage).styledChat_release();
+    }
+
     @Redirect(method = "execute", at = @At(value = "INVOKE", target = "Lnet/minecraft/server/command/ServerCommandSource;sendChatMessage(Lnet/minecraft/network/message/SentMessage;ZLnet/minecraft/network/message/MessageType$Parameters;)V"))
     private static void styledChat_noopFeedback(ServerCommandSource instance, SentMessage message, boolean bl, MessageType.Parameters parameters) {
         // noop
@@ -49,6 +62,10 @@ public class MessageCommandMixin {
 
                 source.sendChatMessage(message, bl, sent);
 
+                if (IgnoreList.isIgnoring(instance, source.getPlayer())) {
+                    return;
+                }
+
                 var rex = StyledChatMod.getMessageType().params(StyledChatStyles.getPrivateMessageReceived(
                         source.getDisplayName(),
                         instance.getDisplayName(),
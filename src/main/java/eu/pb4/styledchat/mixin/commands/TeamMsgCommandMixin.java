@@ -5,6 +5,8 @@ import eu.pb4.styledchat.StyledChatStyles;
 import eu.pb4.styledchat.StyledChatUtils;
 import eu.pb4.styledchat.ducks.ExtSignedMessage;
 import eu.pb4.styledchat.other.ExtendedSentMessage;
+import eu.pb4.styledchat.other.IgnoreList;
+import eu.pb4.styledchat.parser.WordFilter;
 import net.minecraft.entity.Entity;
 import net.minecraft.network.message.MessageType;
 import net.minecraft.network.message.MessageType.Parameters;
@@ -25,8 +27,14 @@ import java.util.List;
 
 @Mixin(TeamMsgCommand.class)
 public class TeamMsgCommandMixin {
-    @Inject(method = "execute", at = @At(value = "HEAD"))
+    @Inject(method = "execute", at = @At(value = "HEAD"), cancellable = true)
     private static void styledChat_formatOgText(ServerCommandSource serverCommandSource, Entity entity, Team team, List<ServerPlayerEntity> list, SignedMessage signedMessage, CallbackInfo ci) {
+        if (!WordFilter.check(serverCommandSource, signedMessage.getSignedContent())) {
+            ExtSignedMessage.of(signedMessage).styledChat_release();
+            ci.cancel();
+            return;
+        }
+
         var input = ExtSignedMessage.getArg(signedMessage, "base_input");
 
         if (input == StyledChatUtils.EMPTY_TEXT) {
@@ -35,6 +43,11 @@ public class TeamMsgCommandMixin {
         }
     }
 
+    @Inject(method = "execute", at = @At("TAIL"))
+    private static void styledChat_releaseMessageData(ServerCommandSource serverCommandSource, Entity entity, Team team, List<ServerPlayerEntity> list, SignedMessage signedMessage, CallbackInfo ci) {
+        ExtSignedMessage.of(signedMessage).styledChat_release();
+    }
+
     @Redirect(method = "execute", at = @At(value = "INVOKE", target = "Lnet/minecraft/server/network/ServerPlayerEntity;sendChatMessage(Lnet/minecraft/network/message/SentMessage;ZLnet/minecraft/network/message/MessageType$Parameters;)V"))
     private static void styledChat_replaceForSelf(ServerPlayerEntity instance, SentMessage message, boolean bl, MessageType.Parameters parameters, ServerCommandSource source) {
         if (message instanceof ExtendedSentMessage extSentMessage) {
@@ -47,7 +60,7 @@ public class TeamMsgCommandMixin {
                     ));
 
                     source.sendChatMessage(message, bl, sent);
-                } else {
+                } else if (!IgnoreList.isIgnoring(instance, source.getPlayer())) {
                     var rex = StyledChatMod.getMessageType().params(StyledChatStyles.getTeamChatReceived(
                             ((Team) source.getEntity().getScoreboardTeam()).getFormattedName(),
                             source.getDisplayName(),
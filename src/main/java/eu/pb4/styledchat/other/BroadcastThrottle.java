@@ -0,0 +1,207 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.StyledChatStyles;
+import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.config.MessageKind;
+import eu.pb4.styledchat.config.data.ConfigData;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.scoreboard.AbstractTeam;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+/**
+ * Limits amount of death/advancement messages sent within a window. Messages above the budget aren't rendered
+ * nor sent, instead their amount is sent as single summary message once window ends.
+ * Summary of broadcasts only counts messages receiver would have seen (death messages hidden by team rules aren't counted).
+ * Only used from server thread.
+ */
+public final class BroadcastThrottle {
+    public static final BroadcastThrottle DEATH = new BroadcastThrottle(MessageKind.DEATH_SUMMARY, (config) -> config.deathBudget);
+    public static final BroadcastThrottle ADVANCEMENT = new BroadcastThrottle(MessageKind.ADVANCEMENT_SUMMARY, (config) -> config.advancementBudget);
+    public static final BroadcastThrottle PET_DEATH = new BroadcastThrottle(MessageKind.PET_DEATH_SUMMARY, (config) -> config.petDeathBudget);
+
+    /**
+     * Audience used for messages broadcast to everyone.
+     */
+    public static final UUID EVERYONE = Util.NIL_UUID;
+
+    private final MessageKind summaryKind;
+    private final ToIntFunction<ConfigData.BroadcastThrottling> budget;
+    private final Object2IntOpenHashMap<UUID> sent = new Object2IntOpenHashMap<>();
+    private final Object2IntOpenHashMap<UUID> suppressed = new Object2IntOpenHashMap<>();
+    private final Object2IntOpenHashMap<Visibility> suppressedBroadcasts = new Object2IntOpenHashMap<>();
+    private long windowStart = -1;
+    private long suppressedTotal;
+
+    private BroadcastThrottle(MessageKind summaryKind, ToIntFunction<ConfigData.BroadcastThrottling> budget) {
+        this.summaryKind = summaryKind;
+        this.budget = budget;
+    }
+
+    public static void tickAll(MinecraftServer server) {
+        DEATH.tick(server);
+        ADVANCEMENT.tick(server);
+        PET_DEATH.tick(server);
+    }
+
+    public static void resetAll() {
+        DEATH.reset();
+        ADVANCEMENT.reset();
+        PET_DEATH.reset();
+    }
+
+    public boolean tryAcquire() {
+        return this.tryAcquire(EVERYONE, Visibility.ALL);
+    }
+
+    /**
+     * Checks if death message of player can be broadcast, following death message visibility of their team.
+     */
+    public boolean tryAcquire(ServerPlayerEntity player) {
+        var team = player.getScoreboardTeam();
+        if (team == null || team.getDeathMessageVisibilityRule() == AbstractTeam.VisibilityRule.ALWAYS) {
+            return this.tryAcquire(EVERYONE, Visibility.ALL);
+        } else if (team.getDeathMessageVisibilityRule() == AbstractTeam.VisibilityRule.NEVER) {
+            // Isn't broadcast at all, only shown on death screen
+            return true;
+        }
+
+        return this.tryAcquire(EVERYONE, new Visibility(team.getName(), team.getDeathMessageVisibilityRule()));
+    }
+
+    /**
+     * Checks if message can be sent to audience (player uuid or {@link #EVERYONE}). If it can't, it's counted towards summary.
+     */
+    public boolean tryAcquire(UUID audience) {
+        return this.tryAcquire(audience, Visibility.ALL);
+    }
+
+    private boolean tryAcquire(UUID audience, Visibility visibility) {
+        var config = ConfigManager.getConfig().configData.broadcastThrottling;
+
+        if (!config.enabled) {
+            return true;
+        }
+
+        if (this.windowStart == -1) {
+            this.windowStart = Util.getMeasuringTimeMs();
+        }
+
+        if (this.sent.addTo(audience, 1) < this.budget.applyAsInt(config)) {
+            return true;
+        }
+
+        if (audience.equals(EVERYONE)) {
+            this.suppressedBroadcasts.addTo(visibility, 1);
+        } else {
+            this.suppressed.addTo(audience, 1);
+        }
+        this.suppressedTotal++;
+        return false;
+    }
+
+    /**
+     * Amount of messages suppressed since server started.
+     */
+    public long getSuppressedTotal() {
+        return this.suppressedTotal;
+    }
+
+    public void tick(MinecraftServer server) {
+        if (this.windowStart == -1 || Util.getMeasuringTimeMs() - this.windowStart < ConfigManager.getConfig().configData.broadcastThrottling.windowMs) {
+            return;
+        }
+
+        if (this.suppressedBroadcasts.size() == 1 && this.suppressedBroadcasts.containsKey(Visibility.ALL)) {
+            var text = StyledChatStyles.getSummary(this.summaryKind, server, this.suppressedBroadcasts.getInt(Visibility.ALL));
+            if (text != null) {
+                server.getPlayerManager().broadcast(text, false);
+            }
+        } else if (!this.suppressedBroadcasts.isEmpty()) {
+            this.sendLimitedSummaries(server);
+        }
+
+        for (var entry : Object2IntMaps.fastIterable(this.suppressed)) {
+            var text = StyledChatStyles.getSummary(this.summaryKind, server, entry.getIntValue());
+            var player = server.getPlayerManager().getPlayer(entry.getKey());
+            if (text != null && player != null) {
+                player.sendMessage(text);
+            }
+        }
+
+        this.windowStart = -1;
+        this.sent.clear();
+        this.suppressed.clear();
+        this.suppressedBroadcasts.clear();
+    }
+
+    /**
+     * Sends each player summary counting only messages visible to them. Console gets total amount.
+     */
+    private void sendLimitedSummaries(MinecraftServer server) {
+        var total = 0;
+        for (var entry : Object2IntMaps.fastIterable(this.suppressedBroadcasts)) {
+            total += entry.getIntValue();
+        }
+
+        var consoleText = StyledChatStyles.getSummary(this.summaryKind, server, total);
+        if (consoleText != null) {
+            server.sendMessage(consoleText);
+        }
+
+        var texts = new Int2ObjectOpenHashMap<Text>();
+        for (var player : server.getPlayerManager().getPlayerList()) {
+            var count = 0;
+            for (var entry : Object2IntMaps.fastIterable(this.suppressedBroadcasts)) {
+                if (entry.getKey().isVisibleTo(player)) {
+                    count += entry.getIntValue();
+                }
+            }
+
+            if (count > 0) {
+                var text = texts.computeIfAbsent(count, (x) -> StyledChatStyles.getSummary(this.summaryKind, server, x));
+                if (text != null) {
+                    player.sendMessage(text);
+                }
+            }
+        }
+    }
+
+    public void reset() {
+        this.windowStart = -1;
+        this.sent.clear();
+        this.suppressed.clear();
+        this.suppressedBroadcasts.clear();
+        this.suppressedTotal = 0;
+    }
+
+    /**
+     * Players which would receive broadcast message. Team is null for messages sent to everyone.
+     */
+    private record Visibility(@Nullable String team, AbstractTeam.VisibilityRule rule) {
+        private static final Visibility ALL = new Visibility(null, AbstractTeam.VisibilityRule.ALWAYS);
+
+        private boolean isVisibleTo(ServerPlayerEntity player) {
+            if (this.team == null) {
+                return true;
+            }
+
+            var playerTeam = player.getScoreboardTeam();
+            var sameTeam = playerTeam != null && playerTeam.getName().equals(this.team);
+            return switch (this.rule) {
+                case ALWAYS -> true;
+                case NEVER -> false;
+                case HIDE_FOR_OTHER_TEAMS -> sameTeam;
+                case HIDE_FOR_OWN_TEAM -> !sameTeam;
+            };
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.predicate.api.PredicateContext;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ChatChannel;
+import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.ducks.ExtSignedMessage;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import net.minecraft.network.message.MessageType;
+import net.minecraft.network.message.SignedMessage;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Keeps members of every chat channel. Membership is updated when players join or leave, switch channel
+ * and when config is reloaded. As there is no way to get notified about permission changes,
+ * few players are also checked again every tick.
+ * Only used from server thread.
+ */
+public final class ChatChannels {
+    /**
+     * Amount of ticks in which every online player gets checked again.
+     */
+    private static final int RECHECK_TICKS = 100;
+
+    private static final Map<String, Set<UUID>> MEMBERS = new HashMap<>();
+    private static final Map<UUID, String> ACTIVE = new HashMap<>();
+    private static int recheckIndex = 0;
+
+    public static void update(ServerPlayerEntity player) {
+        var context = PredicateContext.of(player);
+        var uuid = player.getUuid();
+
+        for (var channel : ConfigManager.getConfig().channels) {
+            var members = MEMBERS.computeIfAbsent(channel.name, (x) -> new ObjectLinkedOpenHashSet<>());
+
+            if (channel.require.test(context).success()) {
+                members.add(uuid);
+            } else if (members.remove(uuid) && channel.name.equals(ACTIVE.get(uuid))) {
+                ACTIVE.remove(uuid);
+            }
+        }
+    }
+
+    public static void remove(ServerPlayerEntity player) {
+        for (var members : MEMBERS.values()) {
+            members.remove(player.getUuid());
+        }
+        ACTIVE.remove(player.getUuid());
+    }
+
+    /**
+     * Recalculates all memberships, used after config changes.
+     */
+    public static void rebuild(MinecraftServer server) {
+        MEMBERS.clear();
+        ACTIVE.values().removeIf((name) -> ConfigManager.getConfig().getChannel(name) == null);
+
+        for (var player : server.getPlayerManager().getPlayerList()) {
+            update(player);
+        }
+    }
+
+    public static void clear() {
+        MEMBERS.clear();
+        ACTIVE.clear();
+        recheckIndex = 0;
+    }
+
+    public static void tick(MinecraftServer server) {
+        var players = server.getPlayerManager().getPlayerList();
+        if (players.isEmpty() || ConfigManager.getConfig().channels.isEmpty()) {
+            return;
+        }
+
+        var count = Math.min(players.size(), players.size() / RECHECK_TICKS + 1);
+        for (int i = 0; i < count; i++) {
+            recheckIndex = (recheckIndex + 1) % players.size();
+            update(players.get(recheckIndex));
+        }
+    }
+
+    public static boolean isMember(ChatChannel channel, ServerPlayerEntity player) {
+        var members = MEMBERS.get(channel.name);
+        return members != null && members.contains(player.getUuid());
+    }
+
+    @Nullable
+    public static ChatChannel getActive(ServerPlayerEntity player) {
+        var name = ACTIVE.get(player.getUuid());
+        return name != null ? ConfigManager.getConfig().getChannel(name) : null;
+    }
+
+    /**
+     * Changes channel player chats in by default, null for global chat. Returns false if player can't use it.
+     */
+    public static boolean setActive(ServerPlayerEntity player, @Nullable ChatChannel channel) {
+        if (channel == null) {
+            ACTIVE.remove(player.getUuid());
+            return true;
+        }
+
+        update(player);
+        if (!isMember(channel, player)) {
+            return false;
+        }
+
+        ACTIVE.put(player.getUuid(), channel.name);
+        return true;
+    }
+
+    /**
+     * Assigns channel to chat message, either from its prefix or from player's active channel.
+     * Returns true if message is sent in channel.
+     */
+    public static boolean prepare(SignedMessage message, ServerPlayerEntity player) {
+        var config = ConfigManager.getConfig();
+        if (config.channels.isEmpty()) {
+            return false;
+        }
+
+        var ext = ExtSignedMessage.of(message);
+        var original = ext.styledChat_getOriginal();
+        var channel = getTarget(player, original);
+
+        if (channel == null) {
+            return false;
+        }
+
+        if (channel.prefix != null && original.startsWith(channel.prefix)) {
+            ext.styledChat_setArg("base_input", StyledChatUtils.formatFor(player.getCommandSource(), original.substring(channel.prefix.length()).stripLeading()));
+        }
+        ext.styledChat_setChannel(channel);
+        return true;
+    }
+
+    /**
+     * Returns channel chat message with provided input would be sent to, either selected by prefix or active one.
+     */
+    @Nullable
+    public static ChatChannel getTarget(ServerPlayerEntity player, String input) {
+        for (var channel : ConfigManager.getConfig().channels) {
+            if (channel.prefix != null && input.startsWith(channel.prefix) && isMember(channel, player)) {
+                return channel;
+            }
+        }
+
+        var active = getActive(player);
+        return active != null && isMember(active, player) ? active : null;
+    }
+
+    public static List<ServerPlayerEntity> getReceivers(MinecraftServer server, ChatChannel channel) {
+        var members = MEMBERS.getOrDefault(channel.name, Set.of());
+        var receivers = new ArrayList<ServerPlayerEntity>(members.size());
+        var playerManager = server.getPlayerManager();
+
+        for (var uuid : members) {
+            var player = playerManager.getPlayer(uuid);
+            if (player != null) {
+                receivers.add(player);
+            }
+        }
+
+        return receivers;
+    }
+
+    public static void broadcast(MinecraftServer server, SignedMessage message, Predicate<ServerPlayerEntity> shouldSendFiltered, ServerPlayerEntity sender, MessageType.Parameters params, ChatChannel channel) {
+        StyledChatUtils.broadcastTo(server, message, shouldSendFiltered, sender, params, getReceivers(server, channel));
+    }
+}
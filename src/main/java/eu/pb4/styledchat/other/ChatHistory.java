@@ -0,0 +1,483 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.StyledChatMod;
+import eu.pb4.styledchat.config.ConfigManager;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.text.Text;
+import net.minecraft.util.Util;
+import net.minecraft.util.WorldSavePath;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local store of recent chat messages, searchable by sender, time and keywords.
+ * Messages are appended to segment files, each having index of records by sender and by keyword,
+ * kept in memory and saved next to segment once it's full. Amount of kept segments is limited.
+ * All file access happens on own thread, both for writing and queries.
+ */
+public final class ChatHistory {
+    public static final int PAGE_SIZE = 10;
+    private static final int MAX_TEXT_LENGTH = 4096;
+    private static final long QUERY_BUDGET_NS = 50_000_000L;
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor((runnable) -> {
+        var thread = new Thread(runnable, "Styled Chat History");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only accessed from history thread
+    private static final List<Segment> SEGMENTS = new ArrayList<>();
+    @Nullable
+    private static Path directory;
+    @Nullable
+    private static DataOutputStream output;
+    private static int outputPosition;
+
+    public static void record(MinecraftServer server, @Nullable UUID sender, String type, String input, Text text) {
+        if (!ConfigManager.getConfig().configData.chatHistory.enabled) {
+            return;
+        }
+
+        var dir = server.getSavePath(WorldSavePath.ROOT).resolve("styled_chat_history");
+        var time = System.currentTimeMillis();
+
+        EXECUTOR.execute(() -> {
+            try {
+                open(dir);
+                append(time, sender != null ? sender : Util.NIL_UUID, type, input, text.getString());
+            } catch (Throwable e) {
+                StyledChatMod.LOGGER.error("Failed to write chat history", e);
+            }
+        });
+    }
+
+    /**
+     * Finds messages send by player, newest first. Search stops early if it takes too long, marking result as partial.
+     */
+    public static CompletableFuture<Result> query(MinecraftServer server, UUID sender, int page, Filter filter) {
+        var dir = server.getSavePath(WorldSavePath.ROOT).resolve("styled_chat_history");
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                open(dir);
+                return search(sender, page, filter);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    public static void close() {
+        try {
+            EXECUTOR.submit(ChatHistory::closeInternal).get();
+        } catch (Throwable e) {
+            StyledChatMod.LOGGER.error("Failed to close chat history", e);
+        }
+    }
+
+    private static void open(Path dir) throws IOException {
+        if (dir.equals(directory)) {
+            return;
+        }
+
+        closeInternal();
+        Files.createDirectories(dir);
+
+        var ids = new IntArrayList();
+        try (var files = Files.list(dir)) {
+            files.forEach((file) -> {
+                var name = file.getFileName().toString();
+                if (name.endsWith(".dat")) {
+                    try {
+                        ids.add(Integer.parseInt(name.substring(0, name.length() - 4)));
+                    } catch (NumberFormatException e) {
+                        // Not a segment
+                    }
+                }
+            });
+        }
+        ids.sort(null);
+
+        // Everything is loaded on the side first, so failure leaves history closed and next call tries again
+        var segments = new ArrayList<Segment>();
+        for (int i = 0; i < ids.size(); i++) {
+            var segment = new Segment(dir, ids.getInt(i));
+            var index = segment.indexFile();
+
+            // Last segment is still written to, so its index is always rebuilt
+            if (i != ids.size() - 1 && Files.exists(index)) {
+                try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+                    segment.readIndex(in);
+                } catch (Throwable e) {
+                    StyledChatMod.LOGGER.warn("Couldn't read chat history index " + index + ", rebuilding it", e);
+                    segment = new Segment(dir, segment.id);
+                    segment.rebuild();
+                }
+            } else {
+                segment.rebuild();
+            }
+            segments.add(segment);
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(new Segment(dir, 0));
+        }
+
+        openOutput(segments.get(segments.size() - 1));
+        SEGMENTS.addAll(segments);
+        directory = dir;
+    }
+
+    private static void openOutput(Segment segment) throws IOException {
+        var file = segment.dataFile();
+        outputPosition = Files.exists(file) ? (int) Files.size(file) : 0;
+        output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    private static void closeInternal() {
+        if (output != null) {
+            try {
+                output.close();
+                SEGMENTS.get(SEGMENTS.size() - 1).writeIndex();
+            } catch (Throwable e) {
+                StyledChatMod.LOGGER.error("Failed to close chat history", e);
+            }
+            output = null;
+        }
+        SEGMENTS.clear();
+        directory = null;
+    }
+
+    private static void append(long time, UUID sender, String type, String input, String text) throws IOException {
+        var config = ConfigManager.getConfig().configData.chatHistory;
+        var segment = SEGMENTS.get(SEGMENTS.size() - 1);
+
+        if (segment.records >= config.segmentRecords) {
+            output.close();
+            segment.writeIndex();
+            segment = new Segment(segment.dir, segment.id + 1);
+            SEGMENTS.add(segment);
+            openOutput(segment);
+
+            while (SEGMENTS.size() > Math.max(config.maxSegments, 1)) {
+                var old = SEGMENTS.remove(0);
+                Files.deleteIfExists(old.dataFile());
+                Files.deleteIfExists(old.indexFile());
+            }
+        }
+
+        var bytes = new ByteArrayOutputStream();
+        var record = new DataOutputStream(bytes);
+        record.writeLong(time);
+        record.writeLong(sender.getMostSignificantBits());
+        record.writeLong(sender.getLeastSignificantBits());
+        CompactStyleDataStorage.writeString(record, type);
+        CompactStyleDataStorage.writeString(record, input);
+        CompactStyleDataStorage.writeString(record, text.length() > MAX_TEXT_LENGTH ? text.substring(0, MAX_TEXT_LENGTH) : text);
+
+        segment.add(outputPosition, time, sender, input);
+        bytes.writeTo(output);
+        output.flush();
+        outputPosition += bytes.size();
+    }
+
+    private static Result search(UUID sender, int page, Filter filter) throws IOException {
+        var start = System.nanoTime();
+        var skip = (page - 1) * PAGE_SIZE;
+        var entries = new ArrayList<Entry>();
+
+        for (int i = SEGMENTS.size() - 1; i >= 0; i--) {
+            var segment = SEGMENTS.get(i);
+            if (segment.maxTime < filter.since) {
+                break;
+            }
+
+            var candidates = segment.find(sender, filter.keywords);
+            if (candidates == null || candidates.isEmpty()) {
+                continue;
+            }
+
+            try (var channel = FileChannel.open(segment.dataFile(), StandardOpenOption.READ)) {
+                for (int x = candidates.size() - 1; x >= 0; x--) {
+                    var entry = readEntry(channel, candidates.getInt(x));
+                    if (entry.time < filter.since) {
+                        break;
+                    }
+
+                    if (skip > 0) {
+                        skip--;
+                    } else if (entries.size() < PAGE_SIZE) {
+                        entries.add(entry);
+                    } else {
+                        return new Result(entries, true, false);
+                    }
+                }
+            }
+
+            if (System.nanoTime() - start > QUERY_BUDGET_NS) {
+                return new Result(entries, false, i > 0);
+            }
+        }
+
+        return new Result(entries, false, false);
+    }
+
+    private static Entry readEntry(FileChannel channel, int offset) throws IOException {
+        channel.position(offset);
+        var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 512));
+        var time = in.readLong();
+        in.skipNBytes(16);
+        var type = CompactStyleDataStorage.readString(in);
+        CompactStyleDataStorage.readString(in);
+        var text = CompactStyleDataStorage.readString(in);
+        return new Entry(time, type, text);
+    }
+
+    /**
+     * Splits text into lowercase words, used for keyword index and queries.
+     */
+    public static Set<String> keywords(String input) {
+        var out = new HashSet<String>();
+        var builder = new StringBuilder();
+
+        for (int i = 0; i <= input.length(); i++) {
+            var c = i < input.length() ? input.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                builder.append(Character.toLowerCase(c));
+            } else {
+                if (builder.length() >= 2) {
+                    out.add(builder.toString());
+                }
+                builder.setLength(0);
+            }
+        }
+
+        return out;
+    }
+
+    private static IntArrayList intersect(IntArrayList a, IntArrayList b) {
+        var out = new IntArrayList(Math.min(a.size(), b.size()));
+        int i = 0, j = 0;
+        while (i < a.size() && j < b.size()) {
+            var x = a.getInt(i);
+            var y = b.getInt(j);
+            if (x == y) {
+                out.add(x);
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return out;
+    }
+
+    public record Filter(long since, Set<String> keywords) {
+        public static final Filter NONE = new Filter(0, Set.of());
+
+        /**
+         * Parses filter made of keywords and optional "since:[number][s/m/h/d]" time limit.
+         */
+        public static Filter parse(String input) {
+            long since = 0;
+            var words = new StringBuilder();
+
+            for (var part : input.split(" ")) {
+                if (part.startsWith("since:") && part.length() > 7) {
+                    try {
+                        var amount = Long.parseLong(part.substring(6, part.length() - 1));
+                        var unit = switch (part.charAt(part.length() - 1)) {
+                            case 's' -> 1000L;
+                            case 'm' -> 60_000L;
+                            case 'h' -> 3_600_000L;
+                            case 'd' -> 86_400_000L;
+                            default -> throw new NumberFormatException();
+                        };
+                        since = System.currentTimeMillis() - amount * unit;
+                        continue;
+                    } catch (NumberFormatException e) {
+                        // Treated as keyword
+                    }
+                }
+                words.append(part).append(' ');
+            }
+
+            return new Filter(since, keywords(words.toString()));
+        }
+    }
+
+    public record Entry(long time, String type, String text) {}
+
+    public record Result(List<Entry> entries, boolean hasMore, boolean partial) {}
+
+    private static final class Segment {
+        private final Path dir;
+        private final int id;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+        private int records;
+        private final Map<UUID, IntArrayList> bySender = new HashMap<>();
+        private final Map<String, IntArrayList> byKeyword = new HashMap<>();
+
+        private Segment(Path dir, int id) {
+            this.dir = dir;
+            this.id = id;
+        }
+
+        private Path dataFile() {
+            return this.dir.resolve(this.id + ".dat");
+        }
+
+        private Path indexFile() {
+            return this.dir.resolve(this.id + ".idx");
+        }
+
+        private void add(int offset, long time, UUID sender, String input) {
+            this.minTime = Math.min(this.minTime, time);
+            this.maxTime = Math.max(this.maxTime, time);
+            this.records++;
+            this.bySender.computeIfAbsent(sender, (x) -> new IntArrayList()).add(offset);
+            for (var keyword : keywords(input)) {
+                this.byKeyword.computeIfAbsent(keyword, (x) -> new IntArrayList()).add(offset);
+            }
+        }
+
+        @Nullable
+        private IntArrayList find(UUID sender, Set<String> keywords) {
+            var out = this.bySender.get(sender);
+            for (var keyword : keywords) {
+                if (out == null || out.isEmpty()) {
+                    return null;
+                }
+
+                var list = this.byKeyword.get(keyword);
+                if (list == null) {
+                    return null;
+                }
+                out = intersect(out, list);
+            }
+            return out;
+        }
+
+        private void rebuild() throws IOException {
+            var file = this.dataFile();
+            if (!Files.exists(file)) {
+                return;
+            }
+
+            var size = Files.size(file);
+            var offset = 0;
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                while (offset < size) {
+                    var time = in.readLong();
+                    var sender = new UUID(in.readLong(), in.readLong());
+                    var type = CompactStyleDataStorage.readString(in);
+                    var input = CompactStyleDataStorage.readString(in);
+                    var text = CompactStyleDataStorage.readString(in);
+                    this.add(offset, time, sender, input);
+                    offset += 24 + sizeOf(type) + sizeOf(input) + sizeOf(text);
+                }
+            } catch (EOFException e) {
+                // Last record got cut off (server crash), so it's removed to keep offsets valid
+                this.truncate(offset);
+            } catch (IOException | RuntimeException e) {
+                // Broken record, everything after it can't be trusted. Original file is kept for inspection
+                var quarantine = this.dir.resolve(this.id + ".dat_corrupt");
+                StyledChatMod.LOGGER.warn("Chat history segment " + file + " is corrupted at " + offset + ", copy of it was saved as " + quarantine.getFileName(), e);
+                Files.copy(file, quarantine, StandardCopyOption.REPLACE_EXISTING);
+                this.truncate(offset);
+            }
+        }
+
+        private void truncate(int offset) throws IOException {
+            try (var channel = FileChannel.open(this.dataFile(), StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+            }
+        }
+
+        private void writeIndex() throws IOException {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.indexFile())))) {
+                out.writeByte(1);
+                out.writeLong(this.minTime);
+                out.writeLong(this.maxTime);
+                CompactStyleDataStorage.writeVarInt(out, this.records);
+
+                CompactStyleDataStorage.writeVarInt(out, this.bySender.size());
+                for (var entry : this.bySender.entrySet()) {
+                    out.writeLong(entry.getKey().getMostSignificantBits());
+                    out.writeLong(entry.getKey().getLeastSignificantBits());
+                    writeOffsets(out, entry.getValue());
+                }
+
+                CompactStyleDataStorage.writeVarInt(out, this.byKeyword.size());
+                for (var entry : this.byKeyword.entrySet()) {
+                    CompactStyleDataStorage.writeString(out, entry.getKey());
+                    writeOffsets(out, entry.getValue());
+                }
+            }
+        }
+
+        private void readIndex(DataInputStream in) throws IOException {
+            if (in.readUnsignedByte() != 1) {
+                throw new IOException("Unsupported index format");
+            }
+            this.minTime = in.readLong();
+            this.maxTime = in.readLong();
+            this.records = CompactStyleDataStorage.readVarInt(in);
+
+            var count = CompactStyleDataStorage.readVarInt(in);
+            for (int i = 0; i < count; i++) {
+                this.bySender.put(new UUID(in.readLong(), in.readLong()), readOffsets(in));
+            }
+
+            count = CompactStyleDataStorage.readVarInt(in);
+            for (int i = 0; i < count; i++) {
+                this.byKeyword.put(CompactStyleDataStorage.readString(in), readOffsets(in));
+            }
+        }
+
+        private static int sizeOf(String value) {
+            var length = value.getBytes(StandardCharsets.UTF_8).length;
+            var size = 1;
+            for (var x = length >>> 7; x != 0; x >>>= 7) {
+                size++;
+            }
+            return size + length;
+        }
+
+        private static void writeOffsets(DataOutputStream out, IntArrayList offsets) throws IOException {
+            CompactStyleDataStorage.writeVarInt(out, offsets.size());
+            var last = 0;
+            for (int i = 0; i < offsets.size(); i++) {
+                CompactStyleDataStorage.writeVarInt(out, offsets.getInt(i) - last);
+                last = offsets.getInt(i);
+            }
+        }
+
+        private static IntArrayList readOffsets(DataInputStream in) throws IOException {
+            var size = CompactStyleDataStorage.readVarInt(in);
+            var list = new IntArrayList(size);
+            var last = 0;
+            for (int i = 0; i < size; i++) {
+                last += CompactStyleDataStorage.readVarInt(in);
+                list.add(last);
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package eu.pb4.styledchat.other;
+
+import com.google.gson.JsonObject;
+import eu.pb4.styledchat.StyledChatMod;
+import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.config.data.ConfigData;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.text.Text;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes chat messages to own log files, as json object per line. Messages are queued without locking
+ * and written in batches by background thread. Active file is rotated daily or once it gets too big,
+ * with old files optionally compressed.
+ */
+public final class ChatLogWriter {
+    private static final String ACTIVE_FILE = "chat.log";
+    private static final Queue<Record> QUEUE = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean STARTED = new AtomicBoolean(false);
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+        var thread = new Thread(runnable, "Styled Chat Log Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only accessed from writer thread
+    @Nullable
+    private static BufferedWriter writer;
+    @Nullable
+    private static Path directory;
+    private static long size;
+    private static LocalDate date;
+
+    public static void log(@Nullable UUID sender, String type, String input, Text text) {
+        var config = ConfigManager.getConfig().configData.chatLog;
+        if (!config.enabled) {
+            return;
+        }
+
+        QUEUE.add(new Record(System.currentTimeMillis(), sender, type, input, text));
+
+        if (STARTED.compareAndSet(false, true)) {
+            EXECUTOR.scheduleWithFixedDelay(ChatLogWriter::drain, config.flushIntervalMs, Math.max(config.flushIntervalMs, 50), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes all queued messages and closes the file, blocking until it's done.
+     */
+    public static void close() {
+        if (!STARTED.get()) {
+            return;
+        }
+
+        try {
+            EXECUTOR.submit(() -> {
+                drain();
+                closeWriter();
+            }).get();
+        } catch (Throwable e) {
+            StyledChatMod.LOGGER.error("Failed to close chat log", e);
+        }
+    }
+
+    private static void drain() {
+        if (QUEUE.isEmpty()) {
+            return;
+        }
+
+        var config = ConfigManager.getConfig().configData.chatLog;
+
+        try {
+            Record record;
+            while ((record = QUEUE.poll()) != null) {
+                var line = record.toJson().toString();
+                prepareWriter(config, record.time);
+                writer.write(line);
+                writer.newLine();
+                size += utf8Length(line) + System.lineSeparator().length();
+            }
+
+            if (writer != null) {
+                writer.flush();
+            }
+        } catch (Throwable e) {
+            StyledChatMod.LOGGER.error("Failed to write chat log", e);
+            closeWriter();
+        }
+    }
+
+    /**
+     * Amount of bytes string takes once encoded as UTF-8, without encoding it.
+     */
+    private static int utf8Length(String string) {
+        var length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            var c = string.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // Unpaired surrogates can't be encoded, count them like String.getBytes does (as '?')
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+
+    private static void prepareWriter(ConfigData.ChatLog config, long time) throws IOException {
+        var recordDate = LocalDate.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        var dir = FabricLoader.getInstance().getGameDir().resolve(config.directory);
+
+        if (writer != null && (!dir.equals(directory) || !recordDate.equals(date) || size >= config.maxFileSizeKb * 1024L)) {
+            closeWriter();
+            rotate(directory, config.compress);
+        }
+
+        if (writer == null) {
+            Files.createDirectories(dir);
+            var file = dir.resolve(ACTIVE_FILE);
+
+            // Leftover from previous run
+            if (Files.exists(file)) {
+                rotate(dir, config.compress);
+            }
+
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            directory = dir;
+            size = 0;
+            date = recordDate;
+        }
+    }
+
+    private static void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                StyledChatMod.LOGGER.error("Failed to close chat log", e);
+            }
+            writer = null;
+        }
+    }
+
+    private static void rotate(Path dir, boolean compress) {
+        var file = dir.resolve(ACTIVE_FILE);
+
+        try {
+            var fileDate = LocalDate.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+            var extension = compress ? ".log.gz" : ".log";
+            Path target;
+            int i = 1;
+            do {
+                target = dir.resolve("chat-" + fileDate + "-" + i++ + extension);
+            } while (Files.exists(target));
+
+            if (compress) {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target))) {
+                    Files.copy(file, out);
+                }
+                Files.delete(file);
+            } else {
+                Files.move(file, target);
+            }
+        } catch (Throwable e) {
+            StyledChatMod.LOGGER.error("Failed to rotate chat log", e);
+        }
+    }
+
+    private record Record(long time, @Nullable UUID sender, String type, String input, Text text) {
+        private JsonObject toJson() {
+            var json = new JsonObject();
+            json.addProperty("time", Instant.ofEpochMilli(this.time).toString());
+            if (this.sender != null) {
+                json.addProperty("sender", this.sender.toString());
+            }
+            json.addProperty("type", this.type);
+            json.addProperty("input", this.input);
+            // Flattened here, so it doesn't happen on server thread
+            json.addProperty("text", this.text.getString());
+            return json;
+        }
+    }
+}
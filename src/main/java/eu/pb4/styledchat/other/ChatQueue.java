@@ -0,0 +1,150 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.StyledChatStyles;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.ducks.ExtSignedMessage;
+import net.minecraft.network.message.MessageType;
+import net.minecraft.network.message.SignedMessage;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Spreads chat broadcasts over multiple ticks, sending only as many of them per tick as fits in configured time budget.
+ * Messages are sent right away until time spent broadcasting within current tick goes over the budget.
+ * After that they are queued per sender (keeping their order) and sent in next ticks, taking senders in turns.
+ * Senders with full queue get new messages rejected or merged into last queued one.
+ * Signed messages are never merged, as merged text would be shown as signed by message it got merged into.
+ */
+public final class ChatQueue {
+    private static final Map<UUID, ArrayDeque<Entry>> QUEUES = new LinkedHashMap<>();
+    private static boolean draining = false;
+    private static long spentNanos = 0;
+    private static long immediateStart = -1;
+
+    /**
+     * Returns true if message got queued (or rejected) and shouldn't be broadcast right now.
+     */
+    public static boolean enqueue(MinecraftServer server, SignedMessage message, ServerPlayerEntity sender, MessageType.Parameters params) {
+        var config = ConfigManager.getConfig().configData.chatQueue;
+        if (!config.enabled || draining || !server.isOnThread()) {
+            return false;
+        }
+
+        var queue = QUEUES.get(sender.getUuid());
+        if (queue == null && spentNanos < config.tickBudgetMs * 1_000_000L) {
+            immediateStart = System.nanoTime();
+            return false;
+        }
+
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            QUEUES.put(sender.getUuid(), queue);
+        }
+
+        // At least one message is queued, so there is always one to merge into
+        if (queue.size() < Math.max(config.maxQueuedPerSender, 1)) {
+            queue.add(new Entry(message, sender, params));
+            return true;
+        }
+
+        var last = queue.peekLast();
+        var lastOverride = last != null ? ExtSignedMessage.getArg(last.message, "override") : null;
+        var override = ExtSignedMessage.getArg(message, "override");
+        if (config.overflow.equals("merge") && last != null && !last.message.hasSignature() && !message.hasSignature()
+                && lastOverride != null && isMergeable(lastOverride) && isMergeable(override)) {
+            ExtSignedMessage.setArg(last.message, "override", Text.empty().append(lastOverride).append("\n").append(override));
+        } else {
+            var text = StyledChatStyles.getQueueRejected(sender);
+            if (text != null && text != StyledChatUtils.IGNORED_TEXT) {
+                sender.sendMessage(text);
+            }
+        }
+        ExtSignedMessage.of(message).styledChat_release();
+        return true;
+    }
+
+    /**
+     * Called after message that wasn't queued got broadcast, to count time spent on it.
+     */
+    public static void finishImmediate() {
+        if (immediateStart != -1) {
+            spentNanos += System.nanoTime() - immediateStart;
+            immediateStart = -1;
+        }
+    }
+
+    public static void tick(MinecraftServer server) {
+        var spent = spentNanos;
+        spentNanos = 0;
+        if (QUEUES.isEmpty()) {
+            return;
+        }
+
+        var deadline = System.nanoTime() + ConfigManager.getConfig().configData.chatQueue.tickBudgetMs * 1_000_000L - spent;
+        draining = true;
+        try {
+            // At least one message is sent every tick, so queue always moves forward
+            do {
+                Iterator<ArrayDeque<Entry>> iterator = QUEUES.values().iterator();
+                while (iterator.hasNext()) {
+                    var queue = iterator.next();
+                    var entry = queue.poll();
+                    if (queue.isEmpty()) {
+                        iterator.remove();
+                    }
+
+                    if (entry != null) {
+                        server.getPlayerManager().broadcast(entry.message, entry.sender, entry.params);
+                    }
+
+                    if (System.nanoTime() > deadline) {
+                        return;
+                    }
+                }
+            } while (!QUEUES.isEmpty());
+        } finally {
+            draining = false;
+        }
+    }
+
+    public static int size() {
+        var size = 0;
+        for (var queue : QUEUES.values()) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * Drops messages queued by player, called when they disconnect.
+     */
+    public static void remove(ServerPlayerEntity player) {
+        var queue = QUEUES.remove(player.getUuid());
+        if (queue != null) {
+            for (var entry : queue) {
+                ExtSignedMessage.of(entry.message).styledChat_release();
+            }
+        }
+    }
+
+    public static void clear() {
+        QUEUES.clear();
+        draining = false;
+        spentNanos = 0;
+        immediateStart = -1;
+    }
+
+    private static boolean isMergeable(Text text) {
+        return text != StyledChatUtils.EMPTY_TEXT && text != StyledChatUtils.IGNORED_TEXT;
+    }
+
+    private record Entry(SignedMessage message, ServerPlayerEntity sender, MessageType.Parameters params) {}
+}
@@ -0,0 +1,91 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.StyledChatStyles;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ChatStyle;
+import eu.pb4.styledchat.config.Config;
+import eu.pb4.styledchat.config.ConfigManager;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per player chat rate limit, checked before message gets formatted.
+ * Works as token bucket, stored as single "theoretical arrival time" updated with compare-and-set,
+ * so checks don't need any locking. Limit of player is resolved once and reused until config is reloaded,
+ * player's style changes or (with LuckPerms) their permissions change.
+ */
+public final class ChatRateLimiter {
+    private static final Map<UUID, Bucket> BUCKETS = new ConcurrentHashMap<>();
+
+    /**
+     * Returns false and notifies player if message should be rejected.
+     */
+    public static boolean tryAcquire(ServerPlayerEntity player) {
+        var config = ConfigManager.getConfig();
+        var bucket = BUCKETS.get(player.getUuid());
+        if (bucket == null || bucket.config != config) {
+            bucket = new Bucket(config, StyledChatStyles.getChatRateLimit(player));
+            BUCKETS.put(player.getUuid(), bucket);
+        }
+
+        var wait = bucket.tryAcquire(System.nanoTime());
+        if (wait == 0) {
+            return true;
+        }
+
+        var text = StyledChatStyles.getRateLimited(player, (int) Math.ceil(wait / 1_000_000_000d));
+        if (text != null && text != StyledChatUtils.IGNORED_TEXT) {
+            player.sendMessage(text);
+        }
+        return false;
+    }
+
+    public static void remove(UUID player) {
+        BUCKETS.remove(player);
+    }
+
+    public static void clear() {
+        BUCKETS.clear();
+    }
+
+    private static final class Bucket {
+        private final Config config;
+        private final boolean unlimited;
+        private final long interval;
+        private final long tolerance;
+        private final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+
+        private Bucket(Config config, ChatStyle.RateLimit limit) {
+            this.config = config;
+            this.unlimited = limit.isUnlimited();
+            this.interval = this.unlimited ? 0 : (long) (limit.seconds() * 1_000_000_000L / limit.messages());
+            this.tolerance = this.interval * (limit.messages() - 1);
+        }
+
+        /**
+         * Returns 0 if message is allowed, otherwise nanoseconds until next one will be.
+         */
+        private long tryAcquire(long now) {
+            if (this.unlimited) {
+                return 0;
+            }
+
+            while (true) {
+                var current = this.arrival.get();
+                var start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+                var wait = start - now - this.tolerance;
+                if (wait > 0) {
+                    return wait;
+                }
+
+                if (this.arrival.compareAndSet(current, start + this.interval)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
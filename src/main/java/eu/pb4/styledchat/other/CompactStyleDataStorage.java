@@ -0,0 +1,246 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.playerdata.api.PlayerDataApi;
+import eu.pb4.playerdata.api.storage.JsonDataStorage;
+import eu.pb4.playerdata.api.storage.PlayerDataStorage;
+import eu.pb4.styledchat.StyledChatMod;
+import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.config.data.ChatStyleData;
+import eu.pb4.styledchat.config.data.VersionedChatStyleData;
+import net.minecraft.server.MinecraftServer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stores personal style data in compact binary format. Only set properties are written, with properties
+ * identified by varint ids. Data stored in old json format is read transparently and replaced on next save.
+ * Previous version of file is kept as backup, which is used if current one can't be read.
+ */
+public final class CompactStyleDataStorage implements PlayerDataStorage<VersionedChatStyleData> {
+    private static final int FORMAT = 1;
+
+    /**
+     * Ids of properties are index + 1 in this list. Only ever append to it!
+     * Id 0 is used for properties not present here, followed by their name.
+     */
+    private static final List<String> KEYS = List.of(
+            "display_name",
+            "link_style",
+            "mention_style",
+            "spoiler_style",
+            "spoiler_symbol",
+            "message_formats.chat",
+            "message_formats.joined_the_game",
+            "message_formats.joined_after_name_change",
+            "message_formats.joined_for_first_time",
+            "message_formats.left_game",
+            "message_formats.base_death",
+            "message_formats.advancement_task",
+            "message_formats.advancement_challenge",
+            "message_formats.advancement_goal",
+            "message_formats.sent_team_chat",
+            "message_formats.received_team_chat",
+            "message_formats.sent_private_message",
+            "message_formats.received_private_message",
+            "message_formats.say_command",
+            "message_formats.me_command",
+            "message_formats.pet_death",
+            "message_formats.joined_the_game_summary",
+            "message_formats.left_game_summary",
+            "message_formats.death_summary",
+            "message_formats.advancement_summary",
+            "message_formats.pet_death_summary",
+            "message_formats.local_chat",
+            "local_chat_radius",
+            "message_formats.rate_limited",
+            "chat_rate_limit",
+            "message_formats.duplicate_summary",
+            "message_formats.duplicate_muted",
+            "word_filter",
+            "message_formats.word_filter_blocked",
+            "message_formats.word_filter_notify",
+            "message_formats.joined_the_game_summary_all",
+            "message_formats.left_game_summary_all",
+            "message_formats.queue_rejected"
+    );
+
+    private final String path;
+    private final JsonDataStorage<VersionedChatStyleData> legacy;
+
+    public CompactStyleDataStorage(String path) {
+        this.path = path;
+        this.legacy = new JsonDataStorage<>(path, VersionedChatStyleData.class, ConfigManager.GSON);
+    }
+
+    @Override
+    public boolean save(MinecraftServer server, UUID player, VersionedChatStyleData data) {
+        var base = PlayerDataApi.getPathFor(server, player);
+        var file = base.resolve(this.path + ".dat");
+        var backup = base.resolve(this.path + ".dat_old");
+        var legacyFile = base.resolve(this.path + ".json");
+
+        try {
+            if (data == null) {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(backup);
+                Files.deleteIfExists(legacyFile);
+                return true;
+            }
+
+            Files.createDirectories(base);
+            var tmp = base.resolve(this.path + ".dat_tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                write(out, data);
+            }
+            if (Files.exists(file)) {
+                Files.copy(file, backup, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(legacyFile);
+            return true;
+        } catch (Throwable e) {
+            StyledChatMod.LOGGER.error("Couldn't save style data of " + player, e);
+            return false;
+        }
+    }
+
+    @Override
+    public @Nullable VersionedChatStyleData load(MinecraftServer server, UUID player) {
+        var base = PlayerDataApi.getPathFor(server, player);
+
+        for (var file : List.of(base.resolve(this.path + ".dat"), base.resolve(this.path + ".dat_old"))) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                return read(in);
+            } catch (Throwable e) {
+                StyledChatMod.LOGGER.error("Couldn't load style data of " + player + " from " + file.getFileName(), e);
+            }
+        }
+
+        // Either not migrated yet or both binary files are broken, in which case json might still be there
+        return this.legacy.load(server, player);
+    }
+
+    public static void write(DataOutputStream out, VersionedChatStyleData data) throws IOException {
+        out.writeByte(FORMAT);
+        writeVarInt(out, data.version);
+
+        var properties = new ArrayList<Map.Entry<String, String>>();
+        for (var prop : ChatStyleData.PROPERTIES.entrySet()) {
+            var value = prop.getValue().get(data);
+            if (value != null) {
+                properties.add(Map.entry(prop.getKey(), value));
+            }
+        }
+
+        writeVarInt(out, properties.size());
+        for (var entry : properties) {
+            var id = KEYS.indexOf(entry.getKey()) + 1;
+            writeVarInt(out, id);
+            if (id == 0) {
+                writeString(out, entry.getKey());
+            }
+            writeString(out, entry.getValue());
+        }
+
+        writeVarInt(out, data.formatting.size());
+        for (var entry : data.formatting.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeBoolean(entry.getValue());
+        }
+
+        writeStringMap(out, data.emoticons);
+        writeStringMap(out, data.custom != null ? data.custom : Map.of());
+    }
+
+    public static VersionedChatStyleData read(DataInputStream in) throws IOException {
+        var format = in.readUnsignedByte();
+        if (format > FORMAT) {
+            throw new IOException("Unsupported format " + format);
+        }
+
+        var data = new VersionedChatStyleData();
+        data.version = readVarInt(in);
+
+        var count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            var id = readVarInt(in);
+            // Ids unknown to this version (written by newer one) are skipped, keeping rest of properties
+            var key = id == 0 ? readString(in) : id <= KEYS.size() ? KEYS.get(id - 1) : null;
+            var value = readString(in);
+
+            var prop = key != null ? ChatStyleData.PROPERTIES.get(key) : null;
+            if (prop != null) {
+                prop.set(data, value);
+            }
+        }
+
+        count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            data.formatting.put(readString(in), in.readBoolean());
+        }
+
+        count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            data.emoticons.put(readString(in), readString(in));
+        }
+
+        count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            data.custom.put(readString(in), readString(in));
+        }
+
+        return data;
+    }
+
+    private static void writeStringMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        writeVarInt(out, map.size());
+        for (var entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        var bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            var b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("VarInt too big");
+    }
+}
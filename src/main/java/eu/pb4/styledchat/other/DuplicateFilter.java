@@ -0,0 +1,284 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.StyledChatPipeline;
+import eu.pb4.styledchat.StyledChatStyles;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ChatChannel;
+import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.config.data.ConfigData;
+import net.minecraft.network.message.SignedMessage;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Detects players repeating the same (or almost the same) message, before it gets formatted.
+ * Every message is reduced to a small sketch: smallest hashes of its 4 character shingles, computed with rolling hash
+ * over normalized text. Sketches of recent messages are kept in per-player ring buffer and compared with new ones,
+ * so check is linear in message length.
+ */
+public final class DuplicateFilter {
+    private static final int SHINGLE = 4;
+    private static final int SKETCH = 16;
+    private static final long BASE = 1_000_003L;
+    private static final Map<UUID, Tracker> TRACKERS = new HashMap<>();
+
+    /**
+     * Returns false if message should be dropped.
+     */
+    public static boolean check(ServerPlayerEntity player, String input) {
+        var config = ConfigManager.getConfig().configData.duplicateFilter;
+        if (!config.enabled) {
+            return true;
+        }
+
+        var now = Util.getMeasuringTimeMs();
+        var tracker = TRACKERS.computeIfAbsent(player.getUuid(), (x) -> new Tracker(player.getGameProfile().getName()));
+
+        if (tracker.mutedUntil > now) {
+            sendMuted(player, tracker.mutedUntil - now);
+            return false;
+        }
+
+        var sketch = sketch(input);
+        var similar = tracker.countSimilar(sketch, now, config);
+        tracker.add(sketch, now, config.history);
+
+        if (similar <= config.allowedRepeats) {
+            tracker.flush(player);
+            tracker.streak = 0;
+            return true;
+        }
+
+        tracker.streak++;
+        tracker.lastDuplicate = now;
+
+        switch (config.action) {
+            case "collapse" -> {
+                tracker.collapsed++;
+                // Summary goes to the same players as collapsed messages would
+                tracker.channel = ChatChannels.getTarget(player, input);
+                tracker.radius = tracker.channel == null ? LocalChat.getRadius(player, input) : 0;
+            }
+            case "mute" -> {
+                if (tracker.streak >= config.muteAfter) {
+                    tracker.mutedUntil = now + config.muteSeconds * 1000L;
+                    tracker.streak = 0;
+                    sendMuted(player, tracker.mutedUntil - now);
+                }
+            }
+            default -> {}
+        }
+
+        return false;
+    }
+
+    public static void tick(MinecraftServer server) {
+        if (server.getTicks() % 20 != 0 || TRACKERS.isEmpty()) {
+            return;
+        }
+
+        var now = Util.getMeasuringTimeMs();
+        var window = ConfigManager.getConfig().configData.duplicateFilter.windowMs;
+        for (var entry : TRACKERS.entrySet()) {
+            var tracker = entry.getValue();
+            if (tracker.collapsed > 0 && now - tracker.lastDuplicate > window) {
+                var player = server.getPlayerManager().getPlayer(entry.getKey());
+                if (player != null) {
+                    tracker.flush(player);
+                }
+            }
+        }
+    }
+
+    public static void remove(ServerPlayerEntity player) {
+        var tracker = TRACKERS.remove(player.getUuid());
+        if (tracker != null) {
+            tracker.flush(player);
+        }
+    }
+
+    public static void clear() {
+        TRACKERS.clear();
+    }
+
+    private static void sendMuted(ServerPlayerEntity player, long remainingMs) {
+        var text = StyledChatStyles.getDuplicateMuted(player, (int) Math.ceil(remainingMs / 1000d));
+        if (text != null && text != StyledChatUtils.IGNORED_TEXT) {
+            player.sendMessage(text);
+        }
+    }
+
+    /**
+     * Creates bottom-k sketch of shingle hashes. Input is lowercased and only letters and digits are kept,
+     * so changes in spacing, punctuation and casing don't matter.
+     */
+    private static long[] sketch(String input) {
+        var normalized = new StringBuilder(input.length());
+        for (int i = 0; i < input.length(); i++) {
+            var c = input.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+
+        var sketch = new long[SKETCH];
+        Arrays.fill(sketch, Long.MAX_VALUE);
+        var length = normalized.length();
+
+        if (length < SHINGLE) {
+            long hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = hash * BASE + normalized.charAt(i);
+            }
+            insert(sketch, mix(hash));
+            return sketch;
+        }
+
+        long power = 1;
+        for (int i = 0; i < SHINGLE - 1; i++) {
+            power *= BASE;
+        }
+
+        long hash = 0;
+        for (int i = 0; i < length; i++) {
+            if (i >= SHINGLE) {
+                hash -= normalized.charAt(i - SHINGLE) * power;
+            }
+            hash = hash * BASE + normalized.charAt(i);
+
+            if (i >= SHINGLE - 1) {
+                insert(sketch, mix(hash));
+            }
+        }
+
+        return sketch;
+    }
+
+    /**
+     * Inserts value into sorted sketch, unless it's already present or larger than all kept values.
+     */
+    private static void insert(long[] sketch, long value) {
+        if (value >= sketch[SKETCH - 1]) {
+            return;
+        }
+
+        var index = Arrays.binarySearch(sketch, value);
+        if (index >= 0) {
+            return;
+        }
+
+        index = -index - 1;
+        System.arraycopy(sketch, index, sketch, index + 1, SKETCH - 1 - index);
+        sketch[index] = value;
+    }
+
+    /**
+     * Estimates Jaccard similarity from k smallest hashes of union of both sketches.
+     */
+    private static double similarity(long[] a, long[] b) {
+        int i = 0, j = 0, taken = 0, shared = 0;
+        while (taken < SKETCH) {
+            var x = i < SKETCH ? a[i] : Long.MAX_VALUE;
+            var y = j < SKETCH ? b[j] : Long.MAX_VALUE;
+            if (x == Long.MAX_VALUE && y == Long.MAX_VALUE) {
+                break;
+            }
+
+            if (x == y) {
+                shared++;
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+            taken++;
+        }
+        return taken == 0 ? 1 : (double) shared / taken;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        // Long.MAX_VALUE marks empty slot
+        return value == Long.MAX_VALUE ? value - 1 : value;
+    }
+
+    private static final class Tracker {
+        private final String name;
+        private long[][] sketches = new long[0][];
+        private long[] times = new long[0];
+        private int next = 0;
+        private int streak = 0;
+        private int collapsed = 0;
+        @Nullable
+        private ChatChannel channel;
+        private int radius;
+        private long lastDuplicate = 0;
+        private long mutedUntil = 0;
+
+        private Tracker(String name) {
+            this.name = name;
+        }
+
+        private int countSimilar(long[] sketch, long now, ConfigData.DuplicateFilter config) {
+            var count = 0;
+            for (int i = 0; i < this.sketches.length; i++) {
+                if (this.sketches[i] != null && now - this.times[i] <= config.windowMs && similarity(this.sketches[i], sketch) >= config.similarity) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private void add(long[] sketch, long now, int size) {
+            size = Math.max(size, 1);
+            if (this.sketches.length != size) {
+                this.sketches = new long[size][];
+                this.times = new long[size];
+                this.next = 0;
+            }
+
+            this.sketches[this.next] = sketch;
+            this.times[this.next] = now;
+            this.next = (this.next + 1) % size;
+        }
+
+        /**
+         * Sends summary of collapsed messages, using the same receivers and deliver stages as chat messages of player.
+         */
+        private void flush(ServerPlayerEntity player) {
+            if (this.collapsed > 0) {
+                var server = player.server;
+                var text = StyledChatStyles.getDuplicateSummary(server, this.name, this.collapsed + 1);
+                if (text != null && text != StyledChatUtils.IGNORED_TEXT) {
+                    var receivers = this.channel != null ? ChatChannels.getReceivers(server, this.channel)
+                            : this.radius > 0 ? LocalChat.getReceivers(player, this.radius)
+                            : server.getPlayerManager().getPlayerList();
+                    var message = SignedMessage.ofUnsigned(player.getUuid(), "");
+                    var source = player.getCommandSource();
+
+                    server.sendMessage(text);
+                    for (var receiver : List.copyOf(receivers)) {
+                        if (StyledChatPipeline.shouldDeliver(message, source, receiver)) {
+                            receiver.sendMessage(text);
+                        }
+                    }
+                }
+                this.collapsed = 0;
+            }
+        }
+    }
+}
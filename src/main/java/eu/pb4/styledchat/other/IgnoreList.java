@@ -0,0 +1,124 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.playerdata.api.PlayerDataApi;
+import eu.pb4.playerdata.api.storage.JsonDataStorage;
+import eu.pb4.playerdata.api.storage.PlayerDataStorage;
+import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.config.data.IgnoreData;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Players ignored by online players. Every player gets dense id once seen, with ignored players
+ * of each online player kept as bitset of these ids, so checking it is a single bit test.
+ * Only used from server thread.
+ */
+public final class IgnoreList {
+    public static final PlayerDataStorage<IgnoreData> STORAGE = new JsonDataStorage<>("styled_chat_ignored", IgnoreData.class, ConfigManager.GSON);
+
+    private static final Object2IntOpenHashMap<UUID> IDS = new Object2IntOpenHashMap<>();
+    private static final Map<UUID, BitSet> IGNORED = new HashMap<>();
+
+    static {
+        IDS.defaultReturnValue(-1);
+    }
+
+    public static void load(ServerPlayerEntity player) {
+        var data = PlayerDataApi.getCustomDataFor(player, STORAGE);
+
+        if (data == null || data.ignored.isEmpty()) {
+            IGNORED.remove(player.getUuid());
+            return;
+        }
+
+        var bits = new BitSet();
+        for (var uuid : data.ignored) {
+            bits.set(idOf(uuid));
+        }
+        IGNORED.put(player.getUuid(), bits);
+    }
+
+    public static void unload(ServerPlayerEntity player) {
+        IGNORED.remove(player.getUuid());
+    }
+
+    public static void clear() {
+        IDS.clear();
+        IGNORED.clear();
+    }
+
+    public static boolean isIgnoring(ServerPlayerEntity receiver, @Nullable UUID sender) {
+        if (sender == null) {
+            return false;
+        }
+
+        var bits = IGNORED.get(receiver.getUuid());
+        if (bits == null) {
+            return false;
+        }
+
+        var id = IDS.getInt(sender);
+        return id != -1 && bits.get(id);
+    }
+
+    public static boolean isIgnoring(ServerPlayerEntity receiver, @Nullable ServerPlayerEntity sender) {
+        return sender != null && isIgnoring(receiver, sender.getUuid());
+    }
+
+    /**
+     * Returns false if player was already ignored.
+     */
+    public static boolean add(ServerPlayerEntity player, UUID target) {
+        var data = getOrCreateData(player);
+        if (data.ignored.contains(target)) {
+            return false;
+        }
+
+        data.ignored.add(target);
+        IGNORED.computeIfAbsent(player.getUuid(), (x) -> new BitSet()).set(idOf(target));
+        PlayerDataApi.setCustomDataFor(player, STORAGE, data);
+        return true;
+    }
+
+    /**
+     * Returns false if player wasn't ignored.
+     */
+    public static boolean remove(ServerPlayerEntity player, UUID target) {
+        var data = PlayerDataApi.getCustomDataFor(player, STORAGE);
+        if (data == null || !data.ignored.remove(target)) {
+            return false;
+        }
+
+        var bits = IGNORED.get(player.getUuid());
+        if (bits != null) {
+            bits.clear(idOf(target));
+        }
+        PlayerDataApi.setCustomDataFor(player, STORAGE, data);
+        return true;
+    }
+
+    public static List<UUID> getIgnored(ServerPlayerEntity player) {
+        var data = PlayerDataApi.getCustomDataFor(player, STORAGE);
+        return data != null ? Collections.unmodifiableList(data.ignored) : List.of();
+    }
+
+    private static IgnoreData getOrCreateData(ServerPlayerEntity player) {
+        var data = PlayerDataApi.getCustomDataFor(player, STORAGE);
+        if (data == null) {
+            data = new IgnoreData();
+        }
+        return data;
+    }
+
+    private static int idOf(UUID uuid) {
+        var id = IDS.getInt(uuid);
+        if (id == -1) {
+            id = IDS.size();
+            IDS.put(uuid, id);
+        }
+        return id;
+    }
+}
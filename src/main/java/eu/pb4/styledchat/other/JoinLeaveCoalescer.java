@@ -0,0 +1,118 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.StyledChatStyles;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ConfigManager;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.text.Texts;
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Folds join/leave messages into single summary when many of them happen within short window
+ * (for example after restart). First messages of a window are sent as usual, rest is summarized once window ends.
+ * Window following one that got summarized suppresses all messages, until burst ends.
+ * Only used from server thread.
+ */
+public final class JoinLeaveCoalescer {
+    public static final JoinLeaveCoalescer JOIN = new JoinLeaveCoalescer(StyledChatStyles::getJoinSummary);
+    public static final JoinLeaveCoalescer LEFT = new JoinLeaveCoalescer(StyledChatStyles::getLeftSummary);
+
+    private final SummaryFactory summaryFactory;
+    private final List<Text> suppressedNames = new ArrayList<>();
+    @Nullable
+    private Text suppressedMessage;
+    private long windowStart = -1;
+    private int count;
+    private boolean bursting;
+
+    private JoinLeaveCoalescer(SummaryFactory summaryFactory) {
+        this.summaryFactory = summaryFactory;
+    }
+
+    public static void tickAll(MinecraftServer server) {
+        JOIN.tick(server);
+        LEFT.tick(server);
+    }
+
+    public static void resetAll() {
+        JOIN.reset();
+        LEFT.reset();
+    }
+
+    /**
+     * Returns message that should be broadcast, or {@link StyledChatUtils#IGNORED_TEXT} if it will be included in summary.
+     */
+    public Text handle(MinecraftServer server, ServerPlayerEntity player, Text message) {
+        var config = ConfigManager.getConfig().configData.joinLeaveCoalescing;
+
+        if (!config.enabled || message == StyledChatUtils.IGNORED_TEXT) {
+            return message;
+        }
+
+        if (this.windowStart == -1) {
+            this.windowStart = Util.getMeasuringTimeMs();
+        }
+
+        this.count++;
+        if (!this.bursting && this.count <= config.threshold) {
+            return message;
+        }
+
+        this.suppressedNames.add(player.getDisplayName());
+        this.suppressedMessage = this.suppressedNames.size() == 1 ? message : null;
+        server.sendMessage(message);
+        return StyledChatUtils.IGNORED_TEXT;
+    }
+
+    public void tick(MinecraftServer server) {
+        if (this.windowStart == -1) {
+            return;
+        }
+
+        var config = ConfigManager.getConfig().configData.joinLeaveCoalescing;
+        var now = Util.getMeasuringTimeMs();
+        if (now - this.windowStart < config.windowMs) {
+            return;
+        }
+
+        if (this.suppressedMessage != null) {
+            sendToPlayers(server, this.suppressedMessage);
+        } else if (!this.suppressedNames.isEmpty()) {
+            var shown = Math.min(Math.max(config.shownNames, 1), this.suppressedNames.size());
+            var players = Texts.join(this.suppressedNames.subList(0, shown), Text.literal(", "));
+            sendToPlayers(server, this.summaryFactory.create(server, players, this.suppressedNames.size() - shown));
+        }
+
+        this.bursting = this.count > config.threshold;
+        this.windowStart = this.bursting ? now : -1;
+        this.count = 0;
+        this.suppressedNames.clear();
+        this.suppressedMessage = null;
+    }
+
+    public void reset() {
+        this.windowStart = -1;
+        this.count = 0;
+        this.bursting = false;
+        this.suppressedNames.clear();
+        this.suppressedMessage = null;
+    }
+
+    private static void sendToPlayers(MinecraftServer server, Text text) {
+        // Individual messages were already logged by handle
+        for (var player : server.getPlayerManager().getPlayerList()) {
+            player.sendMessage(text);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SummaryFactory {
+        Text create(MinecraftServer server, Text players, int others);
+    }
+}
@@ -0,0 +1,99 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.config.ConfigManager;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns off optional formatting features while server can't keep up, one at a time in configured order,
+ * and turns them back on after it recovers. Level only changes once per "step_ticks", so short lag spikes are ignored.
+ */
+public final class LoadShedding {
+    private static volatile boolean[] disabled = new boolean[Stage.values().length];
+    private static volatile List<Stage> disabledStages = List.of();
+    private static int level = 0;
+    private static int ticksSinceChange = 0;
+
+    public static boolean isDisabled(Stage stage) {
+        return disabled[stage.ordinal()];
+    }
+
+    public static int getLevel() {
+        return level;
+    }
+
+    public static List<Stage> getDisabledStages() {
+        return disabledStages;
+    }
+
+    public static void tick(MinecraftServer server) {
+        var config = ConfigManager.getConfig().configData.loadShedding;
+        var order = getOrder(config.order);
+
+        if (!config.enabled) {
+            if (level != 0) {
+                setLevel(0, order);
+            }
+            return;
+        }
+
+        if (++ticksSinceChange < config.stepTicks) {
+            return;
+        }
+
+        var mspt = server.getAverageTickTime();
+        if (mspt > config.thresholdMspt && level < order.size()) {
+            setLevel(level + 1, order);
+        } else if (mspt < config.recoverMspt && level > 0) {
+            setLevel(level - 1, order);
+        } else if (level > order.size()) {
+            setLevel(order.size(), order);
+        }
+    }
+
+    public static void reset() {
+        setLevel(0, List.of());
+    }
+
+    private static void setLevel(int newLevel, List<Stage> order) {
+        level = newLevel;
+        ticksSinceChange = 0;
+
+        var stages = List.copyOf(order.subList(0, Math.min(newLevel, order.size())));
+        var array = new boolean[Stage.values().length];
+        for (var stage : stages) {
+            array[stage.ordinal()] = true;
+        }
+        disabledStages = stages;
+        disabled = array;
+    }
+
+    private static List<Stage> getOrder(List<String> names) {
+        var list = new ArrayList<Stage>();
+        for (var name : names) {
+            for (var stage : Stage.values()) {
+                if (stage.name.equals(name) && !list.contains(stage)) {
+                    list.add(stage);
+                }
+            }
+        }
+        return list;
+    }
+
+    public enum Stage {
+        MENTIONS("mentions"),
+        EMOTICONS("emoticons"),
+        LINKS("links"),
+        MARKDOWN("markdown"),
+        LEGACY_FORMATTING("legacy_formatting"),
+        CUSTOM_RENDERS("custom_renders");
+
+        public final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.StyledChatStyles;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ChatStyle;
+import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.ducks.ExtSignedMessage;
+import net.minecraft.network.message.MessageType;
+import net.minecraft.network.message.SignedMessage;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+public final class LocalChat {
+    /**
+     * Marks chat message as local, if player's style has local chat radius and message doesn't start with global prefix.
+     * Global prefix is removed from displayed message.
+     */
+    public static void prepare(SignedMessage message, ServerPlayerEntity player) {
+        var radius = StyledChatStyles.getLocalChatRadius(player);
+        if (radius <= 0) {
+            return;
+        }
+
+        var ext = ExtSignedMessage.of(message);
+        var original = ext.styledChat_getOriginal();
+
+        if (hasGlobalPrefix(original)) {
+            var prefix = ConfigManager.getConfig().configData.localChat.globalPrefix;
+            ext.styledChat_setArg("base_input", StyledChatUtils.formatFor(player.getCommandSource(), original.substring(prefix.length()).stripLeading()));
+            return;
+        }
+
+        ext.styledChat_setLocalRadius(radius);
+    }
+
+    /**
+     * Returns radius chat message with provided input would be limited to, or 0 if it's global.
+     */
+    public static int getRadius(ServerPlayerEntity player, String input) {
+        var radius = StyledChatStyles.getLocalChatRadius(player);
+        return radius > 0 && !hasGlobalPrefix(input) ? radius : 0;
+    }
+
+    public static List<ServerPlayerEntity> getReceivers(ServerPlayerEntity sender, int radius) {
+        return radius == ChatStyle.LOCAL_CHAT_DIMENSION
+                ? sender.getServerWorld().getPlayers()
+                : PlayerChunkIndex.getNearby(sender, radius);
+    }
+
+    public static void broadcast(MinecraftServer server, SignedMessage message, Predicate<ServerPlayerEntity> shouldSendFiltered, ServerPlayerEntity sender, MessageType.Parameters params, int radius) {
+        StyledChatUtils.broadcastTo(server, message, shouldSendFiltered, sender, params, getReceivers(sender, radius));
+    }
+
+    private static boolean hasGlobalPrefix(String input) {
+        var prefix = ConfigManager.getConfig().configData.localChat.globalPrefix;
+        return prefix != null && !prefix.isEmpty() && input.startsWith(prefix);
+    }
+}
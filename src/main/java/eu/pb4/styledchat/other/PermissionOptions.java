@@ -0,0 +1,166 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.StyledChatMod;
+import me.lucko.fabric.api.permissions.v0.Options;
+import net.fabricmc.loader.api.FabricLoader;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches permission option values ("styled_chat.[property]") per player, so style rebuilds
+ * don't need to query permission provider for every property each time.
+ * With LuckPerms, cached values are dropped as soon as player's permission data changes.
+ * Other providers don't notify about changes, so values are also only kept for {@link #CACHE_TTL_MS}.
+ */
+public final class PermissionOptions {
+    public static final String PREFIX = "styled_chat.";
+    public static final long CACHE_TTL_MS = 30_000;
+
+    private static final Map<UUID, CachedOptions> CACHE = new ConcurrentHashMap<>();
+    private static Provider provider = Provider.PERMISSIONS_API;
+
+    /**
+     * Returns all present option values for provided keys. Values for players are fetched once and cached
+     * until {@link #invalidate(UUID)} or {@link #invalidateAll()} is called, or they expire.
+     */
+    public static Map<String, String> get(ServerCommandSource source, Collection<String> keys) {
+        return get(source, source.getEntity() instanceof ServerPlayerEntity player ? player.getUuid() : null, keys);
+    }
+
+    public static Map<String, String> get(ServerCommandSource source, @Nullable UUID player, Collection<String> keys) {
+        if (player == null) {
+            return provider.fetch(source, null, keys);
+        }
+
+        var now = Util.getMeasuringTimeMs();
+        var cached = CACHE.get(player);
+        if (cached == null || now - cached.time > CACHE_TTL_MS) {
+            cached = new CachedOptions(Map.copyOf(provider.fetch(source, player, keys)), now);
+            CACHE.put(player, cached);
+        }
+        return cached.values;
+    }
+
+    /**
+     * Subscribes to permission data changes of supported permission providers. Called when server starts.
+     */
+    public static void registerListeners() {
+        if (FabricLoader.getInstance().isModLoaded("luckperms")) {
+            try {
+                LuckPermsListener.register();
+            } catch (Throwable e) {
+                StyledChatMod.LOGGER.warn("Couldn't subscribe to LuckPerms events, cached permission options will only expire after time", e);
+            }
+        }
+    }
+
+    /**
+     * Should be called when permission provider notifies about changed options of player
+     */
+    public static void invalidate(UUID player) {
+        CACHE.remove(player);
+    }
+
+    public static void invalidateAll() {
+        CACHE.clear();
+    }
+
+    public static Provider getProvider() {
+        return provider;
+    }
+
+    public static void setProvider(Provider provider) {
+        PermissionOptions.provider = provider;
+        CACHE.clear();
+    }
+
+    public interface Provider {
+        Provider PERMISSIONS_API = (source, player, keys) -> {
+            var map = new HashMap<String, String>();
+            for (var key : keys) {
+                var value = Options.get(source, PREFIX + key);
+
+                if (value.isPresent()) {
+                    map.put(key, value.get());
+                }
+            }
+            return map;
+        };
+
+        /**
+         * Fetches all option values for provided keys (without prefix) in one go.
+         * Missing options shouldn't be present in returned map. Player is null for non player sources.
+         */
+        Map<String, String> fetch(ServerCommandSource source, @Nullable UUID player, Collection<String> keys);
+    }
+
+    /**
+     * Simple provider keeping values in memory, used as stand-in for real permission provider (for example in tests)
+     */
+    public static final class InMemoryProvider implements Provider {
+        private final Map<UUID, Map<String, String>> values = new ConcurrentHashMap<>();
+
+        public void set(UUID player, String key, String value) {
+            this.values.computeIfAbsent(player, (x) -> new ConcurrentHashMap<>()).put(key, value);
+            PermissionOptions.invalidate(player);
+        }
+
+        public void remove(UUID player, String key) {
+            var map = this.values.get(player);
+            if (map != null) {
+                map.remove(key);
+            }
+            PermissionOptions.invalidate(player);
+        }
+
+        public void clear() {
+            this.values.clear();
+            PermissionOptions.invalidateAll();
+        }
+
+        @Override
+        public Map<String, String> fetch(ServerCommandSource source, @Nullable UUID player, Collection<String> keys) {
+            var map = new HashMap<String, String>();
+
+            if (player != null) {
+                var stored = this.values.get(player);
+
+                if (stored != null) {
+                    for (var key : keys) {
+                        var value = stored.get(key);
+                        if (value != null) {
+                            map.put(key, value);
+                        }
+                    }
+                }
+            }
+
+            return map;
+        }
+    }
+
+    private record CachedOptions(Map<String, String> values, long time) {}
+
+    /**
+     * Separate class, so LuckPerms api is only loaded when it's present
+     */
+    private static final class LuckPermsListener {
+        private static void register() {
+            LuckPermsProvider.get().getEventBus().subscribe(UserDataRecalculateEvent.class, (event) -> {
+                invalidate(event.getUser().getUniqueId());
+                // Limit of permission based style could have changed too
+                ChatRateLimiter.remove(event.getUser().getUniqueId());
+            });
+        }
+    }
+}
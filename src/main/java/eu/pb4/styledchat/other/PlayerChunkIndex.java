@@ -0,0 +1,136 @@
+package eu.pb4.styledchat.other;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.util.*;
+
+/**
+ * Index of online players by dimension and chunk. It's updated as players move between chunks,
+ * so players near some position can be found without checking every online player.
+ * Only used from server thread.
+ */
+public final class PlayerChunkIndex {
+    private static final Map<UUID, Entry> ENTRIES = new HashMap<>();
+    private static final Map<RegistryKey<World>, Long2ObjectMap<List<Entry>>> CELLS = new HashMap<>();
+
+    public static void update(ServerPlayerEntity player) {
+        var entry = ENTRIES.get(player.getUuid());
+        var world = player.getWorld().getRegistryKey();
+        var cell = ChunkPos.toLong(player.getChunkPos().x, player.getChunkPos().z);
+
+        if (entry == null) {
+            entry = new Entry(player, world, cell);
+            ENTRIES.put(player.getUuid(), entry);
+            add(entry);
+            return;
+        }
+
+        // Respawning creates new player entity
+        entry.player = player;
+
+        if (entry.cell != cell || entry.world != world) {
+            remove(entry);
+            entry.world = world;
+            entry.cell = cell;
+            add(entry);
+        }
+    }
+
+    public static void remove(ServerPlayerEntity player) {
+        var entry = ENTRIES.remove(player.getUuid());
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    public static void clear() {
+        ENTRIES.clear();
+        CELLS.clear();
+    }
+
+    /**
+     * Returns players in the same dimension as source, which are within radius (in blocks) of it.
+     */
+    public static List<ServerPlayerEntity> getNearby(ServerPlayerEntity source, int radius) {
+        var out = new ArrayList<ServerPlayerEntity>();
+        var cells = CELLS.get(source.getWorld().getRegistryKey());
+
+        if (cells == null) {
+            out.add(source);
+            return out;
+        }
+
+        var pos = source.getPos();
+        var maxDistance = (double) radius * radius;
+        int minX = ((int) Math.floor(pos.x) - radius) >> 4;
+        int maxX = ((int) Math.floor(pos.x) + radius) >> 4;
+        int minZ = ((int) Math.floor(pos.z) - radius) >> 4;
+        int maxZ = ((int) Math.floor(pos.z) + radius) >> 4;
+
+        if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) > cells.size()) {
+            // Area is bigger than amount of occupied cells, so checking them directly is cheaper
+            for (var list : cells.values()) {
+                addNearby(out, list, source, maxDistance);
+            }
+        } else {
+            for (int x = minX; x <= maxX; x++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    var list = cells.get(ChunkPos.toLong(x, z));
+                    if (list != null) {
+                        addNearby(out, list, source, maxDistance);
+                    }
+                }
+            }
+        }
+
+        if (!out.contains(source)) {
+            out.add(source);
+        }
+
+        return out;
+    }
+
+    private static void addNearby(List<ServerPlayerEntity> out, List<Entry> list, ServerPlayerEntity source, double maxDistance) {
+        for (var entry : list) {
+            if (entry.player.squaredDistanceTo(source) <= maxDistance) {
+                out.add(entry.player);
+            }
+        }
+    }
+
+    private static void add(Entry entry) {
+        CELLS.computeIfAbsent(entry.world, (x) -> new Long2ObjectOpenHashMap<>()).computeIfAbsent(entry.cell, (x) -> new ArrayList<>()).add(entry);
+    }
+
+    private static void remove(Entry entry) {
+        var cells = CELLS.get(entry.world);
+        if (cells == null) {
+            return;
+        }
+
+        var list = cells.get(entry.cell);
+        if (list != null) {
+            list.remove(entry);
+            if (list.isEmpty()) {
+                cells.remove(entry.cell);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private ServerPlayerEntity player;
+        private RegistryKey<World> world;
+        private long cell;
+
+        private Entry(ServerPlayerEntity player, RegistryKey<World> world, long cell) {
+            this.player = player;
+            this.world = world;
+            this.cell = cell;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package eu.pb4.styledchat.other;
+
+import net.minecraft.text.Text;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Storage of StyledChat arguments attached to signed messages.
+ * Known arguments use fixed slots, while map is only created for other keys.
+ */
+public final class SignedMessageArgs {
+    private static final int SLOTS = 3;
+
+    private final Text[] slots;
+    @Nullable
+    private Map<String, Text> overflow;
+
+    public SignedMessageArgs() {
+        this.slots = new Text[SLOTS];
+    }
+
+    private SignedMessageArgs(SignedMessageArgs from) {
+        this.slots = from.slots.clone();
+        this.overflow = from.overflow != null ? new HashMap<>(from.overflow) : null;
+    }
+
+    private static int slot(String name) {
+        return switch (name) {
+            case "override" -> 0;
+            case "base_input" -> 1;
+            case "targets" -> 2;
+            default -> -1;
+        };
+    }
+
+    @Nullable
+    public Text get(String name) {
+        var slot = slot(name);
+        if (slot != -1) {
+            return this.slots[slot];
+        }
+
+        return this.overflow != null ? this.overflow.get(name) : null;
+    }
+
+    public void set(String name, Text value) {
+        var slot = slot(name);
+        if (slot != -1) {
+            this.slots[slot] = value;
+        } else {
+            if (this.overflow == null) {
+                this.overflow = new HashMap<>();
+            }
+            this.overflow.put(name, value);
+        }
+    }
+
+    public SignedMessageArgs copy() {
+        return new SignedMessageArgs(this);
+    }
+}
@@ -1,6 +1,7 @@
 package eu.pb4.styledchat.other;
 
 import eu.pb4.styledchat.StyledChatMod;
+import eu.pb4.styledchat.StyledChatPipeline;
 import eu.pb4.styledchat.StyledChatStyles;
 import eu.pb4.styledchat.StyledChatUtils;
 import eu.pb4.styledchat.ducks.ExtPlayNetworkHandler;
@@ -40,6 +41,10 @@ public interface StyledChatSentMessage extends SentMessage, ExtendedSentMessage
 
         @Override
         public void send(ServerPlayerEntity receiver, boolean filterMaskEnabled, MessageType.Parameters params) {
+            if (!StyledChatPipeline.shouldDeliver(this.message, ExtSignedMessage.of(this.message).styledChat_getSource(), receiver)) {
+                return;
+            }
+
             SignedMessage signedMessage = this.message.withFilterMaskEnabled(filterMaskEnabled);
             var color = ((ExtPlayNetworkHandler) receiver.networkHandler).styledChat$chatColors();
             if (!color && colorless.getValue() == null) {
@@ -49,7 +54,10 @@ public interface StyledChatSentMessage extends SentMessage, ExtendedSentMessage
                 var id = receiver.server.getRegistryManager().get(RegistryKeys.MESSAGE_TYPE).getId(params.type());
 
                 if (sourceType == null || Objects.equals(id, this.sourceType.getValue())) {
-                    receiver.networkHandler.sendChatMessage(signedMessage, color ? this.parameters : colorless.getValue());
+                    receiver.networkHandler.sendChatMessage(signedMessage, StyledChatPipeline.transformForReceiver(color ? this.parameters : colorless.getValue(), signedMessage, receiver));
+                } else if (LoadShedding.isDisabled(LoadShedding.Stage.CUSTOM_RENDERS)) {
+                    // Vanilla decoration of requested type is cheap and still matches what receiver expects
+                    receiver.networkHandler.sendChatMessage(signedMessage, StyledChatPipeline.transformForReceiver(color ? params : StyledChatUtils.removeColor(params), signedMessage, receiver));
                 } else {
                     var baseInput = ExtSignedMessage.getArg(signedMessage, "base_input");
                     var source = ExtSignedMessage.of(signedMessage).styledChat_getSource();
@@ -64,7 +72,7 @@ public interface StyledChatSentMessage extends SentMessage, ExtendedSentMessage
                         text = StyledChatUtils.removeColor(text);
                     }
 
-                    receiver.networkHandler.sendChatMessage(signedMessage, StyledChatUtils.createParameters(text));
+                    receiver.networkHandler.sendChatMessage(signedMessage, StyledChatPipeline.transformForReceiver(StyledChatUtils.createParameters(text), signedMessage, receiver));
                 }
             }
         }
@@ -82,6 +90,10 @@ public interface StyledChatSentMessage extends SentMessage, ExtendedSentMessage
 
         @Override
         public void send(ServerPlayerEntity receiver, boolean filterMaskEnabled, MessageType.Parameters params) {
+            if (!StyledChatPipeline.shouldDeliver(this.message, ExtSignedMessage.of(this.message).styledChat_getSource(), receiver)) {
+                return;
+            }
+
             var id = receiver.server.getRegistryManager().get(RegistryKeys.MESSAGE_TYPE).getId(params.type());
             var color = ((ExtPlayNetworkHandler) receiver.networkHandler).styledChat$chatColors();
             if (!color && colorless.getValue() == null) {
@@ -89,7 +101,9 @@ public interface StyledChatSentMessage extends SentMessage, ExtendedSentMessage
             }
 
             if (sourceType == null || Objects.equals(id, this.sourceType.getValue())) {
-                receiver.networkHandler.sendProfilelessChatMessage(message.getContent(), color ? this.parameters : colorless.getValue());
+                receiver.networkHandler.sendProfilelessChatMessage(message.getContent(), StyledChatPipeline.transformForReceiver(color ? this.parameters : colorless.getValue(), this.message, receiver));
+            } else if (LoadShedding.isDisabled(LoadShedding.Stage.CUSTOM_RENDERS)) {
+                receiver.networkHandler.sendProfilelessChatMessage(message.getContent(), StyledChatPipeline.transformForReceiver(color ? params : StyledChatUtils.removeColor(params), this.message, receiver));
             } else {
                 var baseInput = ExtSignedMessage.getArg(message, "base_input");
                 var source = ExtSignedMessage.of(message).styledChat_getSource();
@@ -104,7 +118,7 @@ public interface StyledChatSentMessage extends SentMessage, ExtendedSentMessage
                     text = StyledChatUtils.removeColor(text);
                 }
 
-                receiver.networkHandler.sendProfilelessChatMessage(message.getContent(), StyledChatUtils.createParameters(text));
+                receiver.networkHandler.sendProfilelessChatMessage(message.getContent(), StyledChatPipeline.transformForReceiver(StyledChatUtils.createParameters(text), this.message, receiver));
             }
         }
 
@@ -0,0 +1,155 @@
+package eu.pb4.styledchat.parser;
+
+import eu.pb4.placeholders.api.PlaceholderContext;
+import eu.pb4.placeholders.api.node.TextNode;
+import eu.pb4.placeholders.api.node.parent.ParentTextNode;
+import eu.pb4.placeholders.api.parsers.TextParserV1;
+import eu.pb4.styledchat.StyledChatMod;
+import eu.pb4.styledchat.StyledChatPipeline;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ConfigManager;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.text.Text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Limits work done while formatting single message, so crafted input (deeply nested tags, huge amount of nodes
+ * or anything slow to parse) can't stall the server. Input over the limits is sent as plain text instead.
+ */
+public final class InputGuard {
+    private static final int MAX_TAG_NAME = 32;
+    private static final ThreadLocal<long[]> DEADLINE = ThreadLocal.withInitial(() -> new long[] { Long.MAX_VALUE });
+
+    private InputGuard() {}
+
+    /**
+     * Cheap check done before parsing. Every tag can add a node and unclosed tags nest, so amount of them limits both.
+     */
+    public static boolean isAllowed(String input) {
+        var limits = ConfigManager.getConfig().configData.inputLimits;
+        return isAllowed(input, limits.maxNodes, limits.maxDepth, KnownTags.NAMES);
+    }
+
+    /**
+     * Only "<" starting one of known tags is counted, so text like "<3" or "a < b" doesn't use up the limits.
+     * Tags added by other mods aren't known here, but they are still covered by check of parsed nodes and time limit.
+     */
+    public static boolean isAllowed(String input, int maxNodes, int maxDepth, Set<String> knownTags) {
+        var tags = 0;
+        var depth = 0;
+
+        for (int i = 0; i < input.length(); i++) {
+            if (input.charAt(i) != '<') {
+                continue;
+            }
+
+            var closing = i + 1 < input.length() && input.charAt(i + 1) == '/';
+            var start = closing ? i + 2 : i + 1;
+            var end = start;
+            var limit = Math.min(input.length(), start + MAX_TAG_NAME);
+            while (end < limit && input.charAt(end) != '>' && input.charAt(end) != ':' && input.charAt(end) != '<') {
+                end++;
+            }
+
+            if (end == input.length() || (input.charAt(end) != '>' && input.charAt(end) != ':')) {
+                continue;
+            }
+
+            var name = input.substring(start, end);
+            if (!knownTags.contains(name) && !(closing && name.isEmpty())) {
+                continue;
+            }
+
+            tags++;
+            if (closing) {
+                depth = Math.max(depth - 1, 0);
+            } else if (++depth > maxDepth) {
+                return false;
+            }
+        }
+
+        return tags <= maxNodes;
+    }
+
+    /**
+     * Checks size and depth of parsed input, without recursion.
+     */
+    public static boolean isAllowed(TextNode node) {
+        var limits = ConfigManager.getConfig().configData.inputLimits;
+        return isAllowed(node, limits.maxNodes, limits.maxDepth);
+    }
+
+    public static boolean isAllowed(TextNode node, int maxNodes, int maxDepth) {
+        var nodes = new ArrayDeque<TextNode>();
+        var depths = new IntArrayList();
+        nodes.push(node);
+        depths.add(1);
+        var count = 0;
+
+        while (!nodes.isEmpty()) {
+            var current = nodes.pop();
+            var depth = depths.removeInt(depths.size() - 1);
+
+            if (++count > maxNodes || depth > maxDepth) {
+                return false;
+            }
+
+            if (current instanceof ParentTextNode parent) {
+                for (var child : parent.getChildren()) {
+                    nodes.push(child);
+                    depths.add(depth + 1);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    public static void start() {
+        var time = ConfigManager.getConfig().configData.inputLimits.maxTimeMs;
+        DEADLINE.get()[0] = time > 0 ? System.nanoTime() + time * 1_000_000L : Long.MAX_VALUE;
+    }
+
+    public static void end() {
+        DEADLINE.get()[0] = Long.MAX_VALUE;
+    }
+
+    /**
+     * Used by own parsers to stop early, in which case rest of the input is left unparsed.
+     */
+    public static boolean isOverBudget() {
+        return System.nanoTime() > DEADLINE.get()[0];
+    }
+
+    /**
+     * Returns input as plain text. It still goes through render stages of pipeline, so word filter applies to it too.
+     */
+    public static Text fallback(PlaceholderContext context, String input, String reason) {
+        StyledChatMod.LOGGER.warn("Message from {} exceeded formatting limits ({}), sending it as plain text", context.hasPlayer() ? context.player().getNameForScoreboard() : "server", reason);
+        return StyledChatPipeline.render(Text.literal(input), context);
+    }
+
+    private static final class KnownTags {
+        private static final Set<String> NAMES = collect();
+
+        private static Set<String> collect() {
+            var names = new HashSet<String>();
+            var tags = new ArrayList<>(TextParserV1.DEFAULT.getTags());
+            tags.add(StyledChatUtils.SPOILER_TEXT_TAG);
+
+            for (var tag : tags) {
+                names.add(tag.name());
+                if (tag.aliases() != null) {
+                    for (var alias : tag.aliases()) {
+                        names.add(alias);
+                    }
+                }
+            }
+            return Set.copyOf(names);
+        }
+    }
+}
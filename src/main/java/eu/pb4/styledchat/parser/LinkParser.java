@@ -1,65 +1,46 @@
 package eu.pb4.styledchat.parser;
 
-import eu.pb4.placeholders.api.ParserContext;
 import eu.pb4.placeholders.api.PlaceholderContext;
-import eu.pb4.placeholders.api.Placeholders;
 import eu.pb4.placeholders.api.node.DirectTextNode;
 import eu.pb4.placeholders.api.node.LiteralNode;
 import eu.pb4.placeholders.api.node.TextNode;
 import eu.pb4.placeholders.api.node.parent.ClickActionNode;
 import eu.pb4.placeholders.api.node.parent.ParentNode;
 import eu.pb4.placeholders.api.node.parent.ParentTextNode;
+import eu.pb4.placeholders.api.parsers.MarkdownLiteParserV1;
 import eu.pb4.placeholders.api.parsers.NodeParser;
 import eu.pb4.styledchat.config.ConfigManager;
-import net.minecraft.text.ClickEvent;
-import net.minecraft.text.MutableText;
-import net.minecraft.text.Style;
-import net.minecraft.text.Text;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
 
-import static eu.pb4.styledchat.StyledChatUtils.URL_REGEX;
-
-public record LinkParser(TextNode style) implements NodeParser {
+public record LinkParser(LinkTemplate template) implements NodeParser {
 
     @Override
     public TextNode[] parseNodes(TextNode node) {
         if (node instanceof LiteralNode literalNode) {
             var input = literalNode.value();
-            var list = new ArrayList<TextNode>();
+            var match = UrlScanner.find(input, 0);
+            if (match == null) {
+                return new TextNode[] { node };
+            }
 
-            Matcher matcher = URL_REGEX.matcher(input);
+            var list = new ArrayList<TextNode>();
             int currentPos = 0;
-            int currentEnd = input.length();
-
-            while (matcher.find()) {
-                if (currentEnd <= matcher.start()) {
-                    break;
-                }
-
-                String betweenText = input.substring(currentPos, matcher.start());
 
-                if (betweenText.length() != 0) {
-                    list.add(new LiteralNode(betweenText));
+            while (match != null) {
+                if (currentPos < match.start()) {
+                    list.add(new LiteralNode(input.substring(currentPos, match.start())));
                 }
 
-                var link = matcher.group();
+                list.add(new DirectTextNode(this.template.create(input.substring(match.start(), match.end()))));
 
-                var text = style.toText(ParserContext.of(DynamicNode.NODES, Map.of("url", Text.literal(link), "link", Text.literal(link))));
-
-                list.add(new DirectTextNode(Text.empty().append(text).setStyle(Style.EMPTY.withClickEvent(new ClickEvent(ClickEvent.Action.OPEN_URL, link)))));
-
-                currentPos = matcher.end();
+                currentPos = match.end();
+                match = UrlScanner.find(input, currentPos);
             }
 
-            if (currentPos < currentEnd) {
-                String restOfText = input.substring(currentPos, currentEnd);
-                if (restOfText.length() != 0) {
-                    list.add(new LiteralNode(restOfText));
-                }
+            if (currentPos < input.length()) {
+                list.add(new LiteralNode(input.substring(currentPos)));
             }
 
             return list.toArray(new TextNode[0]);
@@ -76,7 +57,24 @@ public record LinkParser(TextNode style) implements NodeParser {
         return new TextNode[] { node };
     }
 
+    /**
+     * Markdown link formatting, which only accepts links that would be detected in plain text too.
+     */
+    public static TextNode formatMarkdownUrl(TextNode[] nodes, TextNode url) {
+        if (url instanceof LiteralNode literalNode && UrlScanner.isUrl(literalNode.value())) {
+            return MarkdownLiteParserV1.defaultUrlFormatting(nodes, url);
+        }
+
+        var list = new ArrayList<TextNode>();
+        list.add(new LiteralNode("["));
+        list.addAll(List.of(nodes));
+        list.add(new LiteralNode("]("));
+        list.add(url);
+        list.add(new LiteralNode(")"));
+        return new ParentNode(list.toArray(new TextNode[0]));
+    }
+
     public static TextNode[] parse(TextNode node, PlaceholderContext context) {
-        return new LinkParser(ConfigManager.getConfig().getLinkStyle(context)).parseNodes(node);
+        return new LinkParser(ConfigManager.getConfig().getLinkTemplate(context)).parseNodes(node);
     }
 }
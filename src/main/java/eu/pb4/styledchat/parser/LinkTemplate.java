@@ -0,0 +1,71 @@
+package eu.pb4.styledchat.parser;
+
+import eu.pb4.placeholders.api.ParserContext;
+import eu.pb4.placeholders.api.node.TextNode;
+import net.minecraft.text.ClickEvent;
+import net.minecraft.text.HoverEvent;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.PlainTextContent;
+import net.minecraft.text.Style;
+import net.minecraft.text.Text;
+
+import java.util.Map;
+
+/**
+ * Link style rendered once, with only the url slots filled for each link.
+ * Link styles are rendered without placeholder context, so everything except ${url} / ${link} is static.
+ * Url is also filled in hover texts, click events and insertions, so styles like {@code <hover:'${url}'>} keep working.
+ */
+public final class LinkTemplate {
+    private static final String MARKER = "styled_chat:link";
+    private final Text template;
+
+    public LinkTemplate(TextNode style) {
+        var marker = Text.literal(MARKER);
+        this.template = style.toText(ParserContext.of(DynamicNode.NODES, Map.of("url", marker, "link", marker)));
+    }
+
+    public Text create(String link) {
+        return Text.empty().append(fill(this.template, link)).setStyle(Style.EMPTY.withClickEvent(new ClickEvent(ClickEvent.Action.OPEN_URL, link)));
+    }
+
+    private static Text fill(Text text, String link) {
+        var style = fill(text.getStyle(), link);
+        MutableText out;
+        if (text.getContent() instanceof PlainTextContent.Literal literal && literal.string().contains(MARKER)) {
+            out = Text.literal(literal.string().replace(MARKER, link));
+        } else if (text.getSiblings().isEmpty() && style == text.getStyle()) {
+            return text;
+        } else {
+            out = MutableText.of(text.getContent());
+        }
+
+        out.setStyle(style);
+        for (var sibling : text.getSiblings()) {
+            out.append(fill(sibling, link));
+        }
+        return out;
+    }
+
+    private static Style fill(Style style, String link) {
+        var hover = style.getHoverEvent();
+        if (hover != null && hover.getAction() == HoverEvent.Action.SHOW_TEXT) {
+            var value = hover.getValue(HoverEvent.Action.SHOW_TEXT);
+            var filled = fill(value, link);
+            if (filled != value) {
+                style = style.withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, filled));
+            }
+        }
+
+        var click = style.getClickEvent();
+        if (click != null && click.getValue().contains(MARKER)) {
+            style = style.withClickEvent(new ClickEvent(click.getAction(), click.getValue().replace(MARKER, link)));
+        }
+
+        if (style.getInsertion() != null && style.getInsertion().contains(MARKER)) {
+            style = style.withInsertion(style.getInsertion().replace(MARKER, link));
+        }
+
+        return style;
+    }
+}
@@ -7,17 +7,73 @@ import eu.pb4.placeholders.api.node.LiteralNode;
 import eu.pb4.placeholders.api.node.TextNode;
 import eu.pb4.placeholders.api.node.parent.ParentTextNode;
 import eu.pb4.placeholders.api.parsers.NodeParser;
+import eu.pb4.placeholders.impl.placeholder.PlaceholderNode;
 import me.drex.vanish.api.VanishAPI;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public record MentionParser(TextNode style, PlaceholderContext context) implements NodeParser {
 
     public static final boolean VANISH = FabricLoader.getInstance().isModLoaded("melius-vanish");
+    /**
+     * Placeholders which only depend on player's display name (or never change), so mentions using them can be cached
+     */
+    private static final Set<String> CACHEABLE_PLACEHOLDERS = Set.of("player:displayname", "player:name", "player:uuid");
+    private static final Map<UUID, CachedMention> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Returns mention of player, reusing previous one as long as mention style and player's display name stay the same.
+     * Cache is only keyed on display name, so styles using any other placeholders (like ones showing health or rank) are rendered every time.
+     */
+    public static Text getMention(TextNode style, ServerPlayerEntity player) {
+        if (!isCacheable(style)) {
+            return style.toText(PlaceholderContext.of(player));
+        }
+
+        var displayName = player.getDisplayName();
+        var cached = CACHE.get(player.getUuid());
+        if (cached != null && cached.style == style && cached.displayName.equals(displayName)) {
+            return cached.text;
+        }
+
+        var text = style.toText(PlaceholderContext.of(player));
+        CACHE.put(player.getUuid(), new CachedMention(style, displayName, text));
+        return text;
+    }
+
+    static boolean isCacheable(TextNode node) {
+        if (node instanceof PlaceholderNode placeholder) {
+            return CACHEABLE_PLACEHOLDERS.contains(placeholder.placeholder());
+        } else if (node instanceof ParentTextNode parent) {
+            var dynamicChildren = false;
+            for (var child : parent.getChildren()) {
+                if (!isCacheable(child)) {
+                    return false;
+                }
+                dynamicChildren |= child.isDynamic();
+            }
+            // Parent can have dynamic content outside its children (like hover text)
+            return dynamicChildren || !parent.isDynamic();
+        }
+
+        return !node.isDynamic();
+    }
+
+    public static void invalidate(UUID uuid) {
+        CACHE.remove(uuid);
+    }
+
+    public static void clearCache() {
+        CACHE.clear();
+    }
 
     @Override
     public TextNode[] parseNodes(TextNode node) {
@@ -38,17 +94,71 @@ public record MentionParser(TextNode style, PlaceholderContext context) implemen
 
     public TextNode[] parseInput(String input) {
         if (input.isEmpty()) return new TextNode[]{};
+
+        var players = new ArrayList<ServerPlayerEntity>();
+        var names = new ArrayList<String>();
         for (ServerPlayerEntity player : context.server().getPlayerManager().getPlayerList()) {
             if (VANISH && VanishAPI.isVanished(player)) continue;
-            int startPos = input.indexOf(player.getNameForScoreboard());
-            if (startPos != -1) {
-                int endPos = startPos + player.getNameForScoreboard().length();
-                TextNode[] before = parseInput(input.substring(0, startPos));
-                TextNode mention = new DirectTextNode(style.toText(PlaceholderContext.of(player)));
-                TextNode[] after = parseInput(input.substring(Math.min(endPos, input.length())));
-                return Stream.of(before, new TextNode[]{mention}, after).flatMap(Stream::of).toArray(TextNode[]::new);
+            if (player.getNameForScoreboard().isEmpty()) continue;
+            players.add(player);
+            names.add(player.getNameForScoreboard());
+        }
+
+        var list = new ArrayList<TextNode>();
+        int pos = 0;
+
+        for (var occurrence : find(input, names)) {
+            if (occurrence.start() > pos) {
+                list.add(new LiteralNode(input.substring(pos, occurrence.start())));
             }
+            list.add(new DirectTextNode(getMention(style, players.get(occurrence.index()))));
+            pos = occurrence.start() + names.get(occurrence.index()).length();
+        }
+
+        if (pos < input.length()) {
+            list.add(new LiteralNode(input.substring(pos)));
         }
-        return new TextNode[]{new LiteralNode(input)};
+
+        return list.toArray(new TextNode[0]);
     }
+
+    /**
+     * Finds non overlapping occurrences of names, from start of input. At the same position, name earlier in list wins.
+     * Names can't be empty.
+     */
+    public static List<Occurrence> find(String input, List<String> names) {
+        // Next occurrence of each name, only searched again once it's behind current position
+        var next = new int[names.size()];
+        for (int i = 0; i < next.length; i++) {
+            next[i] = input.indexOf(names.get(i));
+        }
+
+        var list = new ArrayList<Occurrence>();
+        int pos = 0;
+
+        while (pos < input.length() && !InputGuard.isOverBudget()) {
+            int found = -1;
+            for (int i = 0; i < next.length; i++) {
+                if (next[i] != -1 && next[i] < pos) {
+                    next[i] = input.indexOf(names.get(i), pos);
+                }
+                if (next[i] != -1 && (found == -1 || next[i] < next[found])) {
+                    found = i;
+                }
+            }
+
+            if (found == -1) {
+                break;
+            }
+
+            list.add(new Occurrence(next[found], found));
+            pos = next[found] + names.get(found).length();
+        }
+
+        return list;
+    }
+
+    public record Occurrence(int start, int index) {}
+
+    private record CachedMention(TextNode style, Text displayName, Text text) {}
 }
@@ -0,0 +1,81 @@
+package eu.pb4.styledchat.parser;
+
+import eu.pb4.placeholders.api.PlaceholderContext;
+import eu.pb4.placeholders.api.PlaceholderHandler;
+import eu.pb4.placeholders.api.PlaceholderResult;
+import eu.pb4.placeholders.api.Placeholders;
+import eu.pb4.placeholders.api.parsers.NodeParser;
+import eu.pb4.placeholders.api.parsers.PatternPlaceholderParser;
+import eu.pb4.styledchat.config.ConfigManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Placeholder parser remembering results for the rest of current tick, as the same placeholders
+ * (like player's display name) tend to be requested many times while formatting messages.
+ * Values are keyed by placeholder, argument, context's owner and view, cleared every tick and after placeholders change.
+ * Placeholders listed in config as uncached, anything requested outside of server thread and contexts with command source
+ * of someone else than owner (which can change permission checks or position) are passed through.
+ */
+public final class PlaceholderCache {
+    private static final Map<Key, PlaceholderResult> CACHE = new HashMap<>();
+
+    public static final Placeholders.PlaceholderGetter GETTER = new Placeholders.PlaceholderGetter() {
+        @Override
+        public PlaceholderHandler getPlaceholder(String placeholder) {
+            var handler = Placeholders.DEFAULT_PLACEHOLDER_GETTER.getPlaceholder(placeholder);
+            if (handler == null || ConfigManager.getConfig().uncachedPlaceholders.contains(placeholder)) {
+                return handler;
+            }
+
+            return (context, argument) -> get(placeholder, handler, context, argument);
+        }
+
+        @Override
+        public boolean isContextOptional() {
+            return Placeholders.DEFAULT_PLACEHOLDER_GETTER.isContextOptional();
+        }
+    };
+
+    public static final NodeParser PARSER = PatternPlaceholderParser.of(Placeholders.PLACEHOLDER_PATTERN, PlaceholderContext.KEY, GETTER);
+
+    private static PlaceholderResult get(String placeholder, PlaceholderHandler handler, PlaceholderContext context, @Nullable String argument) {
+        if (!ConfigManager.getConfig().configData.placeholderCache.enabled || !context.server().isOnThread()
+                || context.source().getEntity() != context.entity()) {
+            return handler.onPlaceholderRequest(context, argument);
+        }
+
+        var key = new Key(placeholder, argument, getOwner(context), context.view());
+        var result = CACHE.get(key);
+        if (result == null) {
+            result = handler.onPlaceholderRequest(context, argument);
+            CACHE.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns identity of context's owner (entity or profile uuid, or world key), for use as part of cache key.
+     */
+    @Nullable
+    public static Object getOwner(PlaceholderContext context) {
+        if (context.entity() != null) {
+            return context.entity().getUuid();
+        } else if (context.gameProfile() != null) {
+            return context.gameProfile().getId();
+        } else if (context.world() != null) {
+            return context.world().getRegistryKey();
+        }
+        return null;
+    }
+
+    public static void clear() {
+        if (!CACHE.isEmpty()) {
+            CACHE.clear();
+        }
+    }
+
+    private record Key(String placeholder, @Nullable String argument, @Nullable Object owner, PlaceholderContext.ViewObject view) {}
+}
@@ -0,0 +1,100 @@
+package eu.pb4.styledchat.parser;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Single pass replacement of {@link eu.pb4.styledchat.StyledChatUtils#URL_REGEX}.
+ * Input without "://" is rejected with a single indexOf, and every character is looked at a constant number of times.
+ * Unlike the regex, trailing punctuation (like "." at end of sentence) and unbalanced closing parentheses aren't part of link.
+ * Links also end at any whitespace (tabs, new lines, unicode spaces), while the regex only stopped at regular space.
+ */
+public final class UrlScanner {
+    private UrlScanner() {}
+
+    /**
+     * Finds first http(s) link starting at or after given index.
+     */
+    @Nullable
+    public static Match find(String input, int from) {
+        var marker = input.indexOf("://", from);
+        // Shared by all markers within the same word, so long words are only walked once
+        var end = -1;
+
+        while (marker != -1) {
+            int start;
+            if (marker - 5 >= from && input.startsWith("https", marker - 5)) {
+                start = marker - 5;
+            } else if (marker - 4 >= from && input.startsWith("http", marker - 4)) {
+                start = marker - 4;
+            } else {
+                marker = input.indexOf("://", marker + 1);
+                continue;
+            }
+
+            var hostStart = marker + 3;
+            if (end < hostStart) {
+                end = hostStart;
+                while (end < input.length() && !Character.isWhitespace(input.charAt(end))) {
+                    end++;
+                }
+            }
+
+            // Host needs a dot followed by at least one character, with only host characters before it
+            var dot = -1;
+            for (int i = hostStart; i < end - 1 && isHostChar(input.charAt(i)); i++) {
+                if (input.charAt(i) == '.' && i > hostStart) {
+                    dot = i;
+                    break;
+                }
+            }
+
+            if (dot != -1) {
+                return new Match(start, trimEnd(input, start, dot + 2, end));
+            }
+
+            marker = input.indexOf("://", marker + 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if entire input is a single link.
+     */
+    public static boolean isUrl(String input) {
+        var match = find(input, 0);
+        return match != null && match.start == 0 && match.end == input.length();
+    }
+
+    private static int trimEnd(String input, int start, int minEnd, int end) {
+        var open = 0;
+        var close = 0;
+        for (int i = start; i < end; i++) {
+            var c = input.charAt(i);
+            if (c == '(') {
+                open++;
+            } else if (c == ')') {
+                close++;
+            }
+        }
+
+        while (end > minEnd) {
+            var c = input.charAt(end - 1);
+            if (c == ')' && close > open) {
+                close--;
+            } else if (c != '.' && c != ',' && c != ';' && c != ':' && c != '!' && c != '?' && c != '\'' && c != '"') {
+                break;
+            }
+            end--;
+        }
+
+        return end;
+    }
+
+    private static boolean isHostChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '@' || c == ':' || c == '%' || c == '.' || c == '_' || c == '+' || c == '~' || c == '#' || c == '=';
+    }
+
+    public record Match(int start, int end) {}
+}
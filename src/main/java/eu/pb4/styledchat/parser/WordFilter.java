@@ -0,0 +1,305 @@
+package eu.pb4.styledchat.parser;
+
+import eu.pb4.placeholders.api.PlaceholderContext;
+import eu.pb4.styledchat.StyledChatMod;
+import eu.pb4.styledchat.StyledChatStyles;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.ConfigManager;
+import eu.pb4.styledchat.config.data.ConfigData;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import me.lucko.fabric.api.permissions.v0.Permissions;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.PlainTextContent;
+import net.minecraft.text.Text;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Matches configured words in chat messages, with all of them compiled into single Aho-Corasick automaton.
+ * Both words and messages are normalized first (lowercased, leetspeak replaced, zero-width and combining characters removed),
+ * so matching takes single pass over the message, no matter how many words there are.
+ */
+public final class WordFilter {
+    public static final String NOTIFY_PERMISSION = "styledchat.word_filter.notify";
+
+    private final List<Int2IntOpenHashMap> children = new ArrayList<>();
+    private final IntArrayList fail = new IntArrayList();
+    /**
+     * Length of word ending at node, 0 if none
+     */
+    private final IntArrayList output = new IntArrayList();
+    /**
+     * Closest node on fail chain with output, -1 if none
+     */
+    private final IntArrayList outputLink = new IntArrayList();
+    private final boolean wholeWords;
+    private final char maskCharacter;
+
+    private WordFilter(List<String> words, boolean wholeWords, char maskCharacter) {
+        this.wholeWords = wholeWords;
+        this.maskCharacter = maskCharacter;
+        this.createNode();
+
+        for (var word : words) {
+            var normalized = normalize(word);
+            if (normalized.length() == 0) {
+                continue;
+            }
+
+            int node = 0;
+            for (int i = 0; i < normalized.length(); i++) {
+                var next = this.children.get(node).get(normalized.charAt(i));
+                if (next == -1) {
+                    next = this.createNode();
+                    this.children.get(node).put(normalized.charAt(i), next);
+                }
+                node = next;
+            }
+            this.output.set(node, normalized.length());
+        }
+
+        // Fail links are computed breadth first, so ones of shorter prefixes are always ready
+        var queue = new IntArrayList();
+        queue.add(0);
+        for (int i = 0; i < queue.size(); i++) {
+            var node = queue.getInt(i);
+            for (var entry : this.children.get(node).int2IntEntrySet()) {
+                var child = entry.getIntValue();
+                queue.add(child);
+
+                if (node != 0) {
+                    var fail = this.step(this.fail.getInt(node), entry.getIntKey());
+                    this.fail.set(child, fail);
+                    this.outputLink.set(child, this.output.getInt(fail) != 0 ? fail : this.outputLink.getInt(fail));
+                }
+            }
+        }
+    }
+
+    @Nullable
+    public static WordFilter create(ConfigData.WordFilter data) {
+        if (!data.enabled) {
+            return null;
+        }
+
+        var words = new ArrayList<String>();
+        for (var word : data.words) {
+            if (word.startsWith("$from_file:")) {
+                words.addAll(ConfigManager.loadLines(word.substring("$from_file:".length())));
+            } else {
+                words.add(word);
+            }
+        }
+
+        return new WordFilter(words, data.wholeWords, data.maskCharacter.isEmpty() ? '*' : data.maskCharacter.charAt(0));
+    }
+
+    /**
+     * Checks message sent with command (/msg, /teammsg, /me, /say). Messages not sent by players are never blocked.
+     */
+    public static boolean check(ServerCommandSource source, String input) {
+        return source.getPlayer() == null || check(source.getPlayer(), input);
+    }
+
+    /**
+     * Checks chat message before it gets formatted. Returns false if it should be blocked.
+     */
+    public static boolean check(ServerPlayerEntity player, String input) {
+        var filter = ConfigManager.getConfig().wordFilter;
+        if (filter == null) {
+            return true;
+        }
+
+        var action = StyledChatStyles.getWordFilterAction(player);
+        if ((!action.block() && !action.notify()) || !filter.matches(input)) {
+            return true;
+        }
+
+        if (action.notify()) {
+            var text = StyledChatStyles.getWordFilterNotify(player, input);
+            if (text != null && text != StyledChatUtils.IGNORED_TEXT) {
+                StyledChatMod.LOGGER.info(text.getString());
+                for (var receiver : player.server.getPlayerManager().getPlayerList()) {
+                    if (Permissions.check(receiver, NOTIFY_PERMISSION, 2)) {
+                        receiver.sendMessage(text);
+                    }
+                }
+            }
+        }
+
+        if (action.block()) {
+            var text = StyledChatStyles.getWordFilterBlocked(player);
+            if (text != null && text != StyledChatUtils.IGNORED_TEXT) {
+                player.sendMessage(text);
+            }
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Masks matched words in already rendered message, so words coming from emoticons and mentions are covered too.
+     */
+    public static Text apply(PlaceholderContext context, Text text) {
+        var filter = ConfigManager.getConfig().wordFilter;
+        if (filter == null) {
+            return text;
+        }
+
+        var action = context.hasPlayer()
+                ? StyledChatStyles.getWordFilterAction(context.player())
+                : ConfigManager.getConfig().getWordFilterAction(context);
+
+        return action.mask() ? filter.mask(text) : text;
+    }
+
+    public boolean matches(String input) {
+        return !this.find(input).isEmpty();
+    }
+
+    public Text mask(Text text) {
+        var builder = new StringBuilder();
+        collect(text, builder);
+
+        var masked = this.find(builder);
+        if (masked.isEmpty()) {
+            return text;
+        }
+
+        return this.rebuild(text, builder, masked, new int[1]);
+    }
+
+    /**
+     * Returns positions (in original input) covered by matched words.
+     */
+    private BitSet find(CharSequence input) {
+        var result = new BitSet();
+        var normalized = new StringBuilder(input.length());
+        var source = new IntArrayList(input.length());
+        var letters = new BitSet(input.length());
+        normalize(input, normalized, source, letters);
+
+        int node = 0;
+        for (int i = 0; i < normalized.length(); i++) {
+            node = this.step(node, normalized.charAt(i));
+
+            var match = this.output.getInt(node) != 0 ? node : this.outputLink.getInt(node);
+            while (match != -1) {
+                var start = i - this.output.getInt(match) + 1;
+                if (!this.wholeWords || (isBoundary(letters, start - 1) && isBoundary(letters, i + 1))) {
+                    result.set(source.getInt(start), source.getInt(i) + 1);
+                }
+                match = this.outputLink.getInt(match);
+            }
+        }
+
+        return result;
+    }
+
+    private int step(int node, int character) {
+        while (true) {
+            var next = this.children.get(node).get(character);
+            if (next != -1) {
+                return next;
+            } else if (node == 0) {
+                return 0;
+            }
+            node = this.fail.getInt(node);
+        }
+    }
+
+    private int createNode() {
+        var map = new Int2IntOpenHashMap();
+        map.defaultReturnValue(-1);
+        this.children.add(map);
+        this.fail.add(0);
+        this.output.add(0);
+        this.outputLink.add(-1);
+        return this.children.size() - 1;
+    }
+
+    private Text rebuild(Text text, CharSequence input, BitSet masked, int[] position) {
+        MutableText out;
+        if (text.getContent() instanceof PlainTextContent.Literal literal) {
+            var start = position[0];
+            var end = start + literal.string().length();
+            position[0] = end;
+
+            var next = masked.nextSetBit(start);
+            if (next != -1 && next < end) {
+                var builder = new StringBuilder(literal.string());
+                for (int i = next; i != -1 && i < end; i = masked.nextSetBit(i + 1)) {
+                    if (!Character.isWhitespace(input.charAt(i))) {
+                        builder.setCharAt(i - start, this.maskCharacter);
+                    }
+                }
+                out = Text.literal(builder.toString());
+            } else {
+                out = MutableText.of(text.getContent());
+            }
+        } else {
+            out = MutableText.of(text.getContent());
+        }
+
+        out.setStyle(text.getStyle());
+        for (var sibling : text.getSiblings()) {
+            out.append(this.rebuild(sibling, input, masked, position));
+        }
+        return out;
+    }
+
+    private static void collect(Text text, StringBuilder builder) {
+        if (text.getContent() instanceof PlainTextContent.Literal literal) {
+            builder.append(literal.string());
+        }
+
+        for (var sibling : text.getSiblings()) {
+            collect(sibling, builder);
+        }
+    }
+
+    /**
+     * Boundaries are checked against original characters, as digits and symbols turned into letters by leetspeak
+     * replacement (like "badword1" or "@badword") shouldn't make word around them longer.
+     */
+    private static boolean isBoundary(BitSet letters, int index) {
+        return index < 0 || !letters.get(index);
+    }
+
+    private static String normalize(String input) {
+        var builder = new StringBuilder(input.length());
+        normalize(input, builder, new IntArrayList(), new BitSet());
+        return builder.toString();
+    }
+
+    private static void normalize(CharSequence input, StringBuilder out, IntArrayList source, BitSet letters) {
+        for (int i = 0; i < input.length(); i++) {
+            var c = input.charAt(i);
+            var type = Character.getType(c);
+            if (type == Character.FORMAT || type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK) {
+                // Zero-width characters, soft hyphens and combining marks
+                continue;
+            }
+
+            out.append(switch (c) {
+                case '0' -> 'o';
+                case '1', '!' -> 'i';
+                case '3' -> 'e';
+                case '4', '@' -> 'a';
+                case '5', '$' -> 's';
+                case '7' -> 't';
+                case '8' -> 'b';
+                default -> Character.toLowerCase(c);
+            });
+            letters.set(source.size(), Character.isLetter(c));
+            source.add(i);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package eu.pb4.styledchat.config.data;
+
+import com.google.gson.annotations.SerializedName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatStyleDataTest {
+    @Test
+    void registersAccessorForEveryStringField() {
+        var expected = new HashSet<String>();
+        for (var field : ChatStyleData.class.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                expected.add(field.getAnnotation(SerializedName.class).value());
+            }
+        }
+        for (var field : ChatStyleData.Messages.class.getFields()) {
+            expected.add("message_formats." + field.getAnnotation(SerializedName.class).value());
+        }
+
+        assertEquals(expected, ChatStyleData.PROPERTIES.keySet());
+    }
+
+    @Test
+    void accessorsReadAndWriteTheirField() {
+        var data = new ChatStyleData();
+        var index = 0;
+        for (var entry : ChatStyleData.PROPERTIES.entrySet()) {
+            entry.getValue().set(data, "value " + index++);
+        }
+
+        index = 0;
+        for (var entry : ChatStyleData.PROPERTIES.entrySet()) {
+            assertEquals("value " + index++, entry.getValue().get(data), entry.getKey());
+        }
+
+        assertEquals(ChatStyleData.PROPERTIES.get("message_formats.chat").get(data), data.messages.chat);
+        assertEquals(ChatStyleData.PROPERTIES.get("display_name").get(data), data.displayName);
+    }
+}
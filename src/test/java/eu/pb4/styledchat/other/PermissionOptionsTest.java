@@ -0,0 +1,72 @@
+package eu.pb4.styledchat.other;
+
+import net.minecraft.server.command.CommandOutput;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.Vec2f;
+import net.minecraft.util.math.Vec3d;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermissionOptionsTest {
+    private static final List<String> KEYS = List.of("display_name", "chat");
+    private final PermissionOptions.InMemoryProvider provider = new PermissionOptions.InMemoryProvider();
+    private final ServerCommandSource source = new ServerCommandSource(CommandOutput.DUMMY, Vec3d.ZERO, Vec2f.ZERO, null, 0, "test", Text.literal("test"), null, null);
+
+    @BeforeEach
+    void setUp() {
+        PermissionOptions.setProvider(this.provider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        PermissionOptions.setProvider(PermissionOptions.Provider.PERMISSIONS_API);
+    }
+
+    @Test
+    void returnsOnlyRequestedKeys() {
+        var player = UUID.randomUUID();
+        this.provider.set(player, "display_name", "<red>${default}");
+        this.provider.set(player, "unrelated", "value");
+
+        assertEquals(Map.of("display_name", "<red>${default}"), PermissionOptions.get(this.source, player, KEYS));
+        assertEquals(Map.of(), PermissionOptions.get(this.source, UUID.randomUUID(), KEYS));
+        assertEquals(Map.of(), PermissionOptions.get(this.source, null, KEYS));
+    }
+
+    @Test
+    void cachesUntilInvalidated() {
+        var player = UUID.randomUUID();
+        this.provider.set(player, "chat", "a");
+        var first = PermissionOptions.get(this.source, player, KEYS);
+        assertSame(first, PermissionOptions.get(this.source, player, KEYS));
+
+        // Changing values invalidates cached ones, the same way permission provider events do
+        this.provider.set(player, "chat", "b");
+        assertEquals(Map.of("chat", "b"), PermissionOptions.get(this.source, player, KEYS));
+
+        this.provider.remove(player, "chat");
+        assertEquals(Map.of(), PermissionOptions.get(this.source, player, KEYS));
+    }
+
+    @Test
+    void invalidatesAllOnClear() {
+        var first = UUID.randomUUID();
+        var second = UUID.randomUUID();
+        this.provider.set(first, "chat", "a");
+        this.provider.set(second, "chat", "b");
+        PermissionOptions.get(this.source, first, KEYS);
+        PermissionOptions.get(this.source, second, KEYS);
+
+        this.provider.clear();
+        assertEquals(Map.of(), PermissionOptions.get(this.source, first, KEYS));
+        assertEquals(Map.of(), PermissionOptions.get(this.source, second, KEYS));
+    }
+}
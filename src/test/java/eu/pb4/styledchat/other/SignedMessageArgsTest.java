@@ -0,0 +1,130 @@
+package eu.pb4.styledchat.other;
+
+import eu.pb4.styledchat.ducks.ExtSignedMessage;
+import net.minecraft.network.message.SignedMessage;
+import net.minecraft.server.command.CommandOutput;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.Vec2f;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedMessageArgsTest {
+    private static final int MESSAGES = 50_000;
+
+    @Test
+    void copiesDoNotShareSlots() {
+        var args = new SignedMessageArgs();
+        args.set("override", Text.literal("a"));
+        args.set("custom", Text.literal("b"));
+
+        var copy = args.copy();
+        copy.set("override", Text.literal("c"));
+        copy.set("custom", Text.literal("d"));
+        copy.set("other", Text.literal("e"));
+
+        assertEquals("a", args.get("override").getString());
+        assertEquals("b", args.get("custom").getString());
+        assertNull(args.get("other"));
+        assertEquals("c", copy.get("override").getString());
+        assertEquals("d", copy.get("custom").getString());
+    }
+
+    @Test
+    void soakShareCopyRelease() {
+        var sender = UUID.randomUUID();
+
+        for (int i = 0; i < MESSAGES; i++) {
+            var message = SignedMessage.ofUnsigned(sender, "message " + i);
+            var ext = ExtSignedMessage.of(message);
+            // Fresh message never sees arguments of previous ones
+            assertTrue(ext.styledChat_getArg("override").getString().isEmpty(), "message " + i);
+            assertTrue(ext.styledChat_getArg("custom").getString().isEmpty(), "message " + i);
+
+            ExtSignedMessage.setArg(message, "override", Text.literal("override " + i));
+            ExtSignedMessage.setArg(message, "custom", Text.literal("custom " + i));
+
+            // Derived message shares arguments until one of them modifies them
+            var derived = message.withUnsignedContent(Text.literal("unsigned " + i));
+            assertEquals("override " + i, ExtSignedMessage.getArg(derived, "override").getString());
+
+            ExtSignedMessage.setArg(derived, "override", Text.literal("derived " + i));
+            ExtSignedMessage.setArg(message, "custom", Text.literal("changed " + i));
+            assertEquals("override " + i, ExtSignedMessage.getArg(message, "override").getString());
+            assertEquals("derived " + i, ExtSignedMessage.getArg(derived, "override").getString());
+            assertEquals("custom " + i, ExtSignedMessage.getArg(derived, "custom").getString());
+            assertEquals("changed " + i, ExtSignedMessage.getArg(message, "custom").getString());
+
+            ext.styledChat_release();
+            assertTrue(ext.styledChat_getArg("override").getString().isEmpty(), "message " + i);
+            assertTrue(ext.styledChat_getArg("custom").getString().isEmpty(), "message " + i);
+            assertNull(ext.styledChat_getSource());
+            assertNull(ext.styledChat_getChannel());
+            // Releasing one message leaves the other one intact
+            assertEquals("derived " + i, ExtSignedMessage.getArg(derived, "override").getString());
+
+            ExtSignedMessage.of(derived).styledChat_release();
+            assertTrue(ExtSignedMessage.getArg(derived, "override").getString().isEmpty(), "message " + i);
+        }
+    }
+
+    @Test
+    void releasedDataIsCollectedWhileMessagesStayReferenced() throws InterruptedException {
+        var sender = UUID.randomUUID();
+        // Messages stay referenced (like in chat history or signature cache of clients), while their data shouldn't
+        var messages = new ArrayList<SignedMessage>(MESSAGES * 2);
+        var references = new ArrayList<WeakReference<Object>>();
+
+        for (int i = 0; i < MESSAGES; i++) {
+            sendAndRelease(sender, i, messages, i % 100 == 0 ? references : null);
+        }
+
+        assertTrue(awaitCollected(references), "Released message data is still referenced");
+        assertEquals(MESSAGES * 2, messages.size());
+    }
+
+    /**
+     * Separate method, so nothing but the messages stays referenced from stack once it returns.
+     */
+    private static void sendAndRelease(UUID sender, int i, List<SignedMessage> messages, @Nullable List<WeakReference<Object>> references) {
+        var message = SignedMessage.ofUnsigned(sender, "message " + i);
+        var source = new ServerCommandSource(CommandOutput.DUMMY, Vec3d.ZERO, Vec2f.ZERO, null, 0, "test " + i, Text.literal("test " + i), null, null);
+        var override = Text.literal("override " + i);
+        var input = Text.literal("input " + i);
+
+        ExtSignedMessage.of(message).styledChat_setSource(source);
+        ExtSignedMessage.setArg(message, "override", override);
+        ExtSignedMessage.setArg(message, "base_input", input);
+        var derived = message.withUnsignedContent(Text.literal("unsigned " + i));
+
+        if (references != null) {
+            references.add(new WeakReference<>(source));
+            references.add(new WeakReference<>(override));
+            references.add(new WeakReference<>(input));
+        }
+
+        ExtSignedMessage.of(message).styledChat_release();
+        ExtSignedMessage.of(derived).styledChat_release();
+        messages.add(message);
+        messages.add(derived);
+    }
+
+    private static boolean awaitCollected(List<WeakReference<Object>> references) throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            System.gc();
+            if (references.stream().allMatch((x) -> x.get() == null)) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+}
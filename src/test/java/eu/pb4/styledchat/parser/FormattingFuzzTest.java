@@ -0,0 +1,179 @@
+package eu.pb4.styledchat.parser;
+
+import eu.pb4.placeholders.api.ParserContext;
+import eu.pb4.placeholders.api.node.LiteralNode;
+import eu.pb4.placeholders.api.node.TextNode;
+import eu.pb4.placeholders.api.parsers.LegacyFormattingParser;
+import eu.pb4.placeholders.api.parsers.MarkdownLiteParserV1;
+import eu.pb4.placeholders.api.parsers.NodeParser;
+import eu.pb4.placeholders.api.parsers.PatternPlaceholderParser;
+import eu.pb4.placeholders.api.parsers.TextParserV1;
+import eu.pb4.styledchat.StyledChatUtils;
+import eu.pb4.styledchat.config.data.ConfigData;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.util.Formatting;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sends random and adversarial messages through the same parsers and guards as {@link StyledChatUtils#formatFor},
+ * asserting worst-case time per message. Mentions are left out, as they need running server
+ * (their matching is covered by {@link MentionParserTest}).
+ */
+class FormattingFuzzTest {
+    private static final int MAX_LENGTH = 256;
+    private static final long MAX_NANOS_PER_MESSAGE = 100_000_000L;
+    /**
+     * Copy of pattern used before, matches have to stay the same.
+     */
+    private static final Pattern OLD_EMOTE_PATTERN = Pattern.compile("(?<!((?<!(\\\\))\\\\))[:](?<id>[^:]+)[:]");
+    private static final String[] TOKENS = {
+            "<red>", "<bold>", "<b>", "<i>", "<color:#ff0000>", "<gradient:red:blue>", "<rainbow>", "<hover:'x'>", "<spoiler>",
+            "</red>", "</>", "</bold>", "<reset>", "<", ">", "</", "'", "\"", ":", "::", ":shrug:", "\\", "\\\\", "\\:",
+            "://", "http://", "https://a.b/", "**", "__", "~~", "||", "[", "](", ")", "&c", "&l", "a", "word", " ", "é"
+    };
+
+    private static NodeParser parser;
+    private static Set<String> knownTags;
+    private static final ConfigData.InputLimits LIMITS = new ConfigData.InputLimits();
+
+    @BeforeAll
+    static void setUp() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        var base = new TextParserV1();
+        knownTags = new HashSet<>();
+        for (var tag : TextParserV1.DEFAULT.getTags()) {
+            base.register(tag);
+            knownTags.add(tag.name());
+            if (tag.aliases() != null) {
+                for (var alias : tag.aliases()) {
+                    knownTags.add(alias);
+                }
+            }
+        }
+        base.register(StyledChatUtils.SPOILER_TEXT_TAG);
+        knownTags.add(StyledChatUtils.SPOILER_TAG);
+
+        var emotes = Map.<String, TextNode>of("shrug", new LiteralNode("¯\\_(ツ)_/¯"), "a", new LiteralNode("b"));
+        // Same order as StyledChatUtils.createParser
+        parser = NodeParser.merge(List.of(
+                base,
+                new LinkParser(new LinkTemplate(TextParserV1.DEFAULT.parseNode("<underline><c:#7878ff>${link}"))),
+                new MarkdownLiteParserV1(SpoilerNode::new, MarkdownLiteParserV1::defaultQuoteFormatting, LinkParser::formatMarkdownUrl, MarkdownLiteParserV1.MarkdownFormat.values()),
+                new LegacyFormattingParser(true, Formatting.values()),
+                new PatternPlaceholderParser(StyledChatUtils.EMOTE_PATTERN, emotes::get)
+        ));
+    }
+
+    @Test
+    void randomMessagesStayWithinBudget() {
+        var random = new Random(4321);
+        var worst = 0L;
+        String worstInput = null;
+
+        for (int i = 0; i < 20_000; i++) {
+            var input = randomMessage(random);
+            var time = format(input);
+            // First messages include class loading and JIT warmup
+            if (i >= 1_000 && time > worst) {
+                worst = time;
+                worstInput = input;
+            }
+        }
+
+        assertTrue(worst < MAX_NANOS_PER_MESSAGE, "Took " + worst / 1_000_000 + " ms: " + worstInput);
+    }
+
+    @Test
+    void adversarialMessagesStayWithinBudget() {
+        var inputs = List.of(
+                "<red>".repeat(MAX_LENGTH / 5),
+                "<gradient:red:blue>".repeat(MAX_LENGTH / 19),
+                "<spoiler>".repeat(MAX_LENGTH / 9),
+                "<hover:'".repeat(MAX_LENGTH / 8),
+                "<".repeat(MAX_LENGTH),
+                ":".repeat(MAX_LENGTH),
+                "\\".repeat(MAX_LENGTH - 1) + ":",
+                ":a\\".repeat(MAX_LENGTH / 3),
+                "://".repeat(MAX_LENGTH / 3),
+                "http://a.".repeat(MAX_LENGTH / 9),
+                "https://" + "(".repeat(MAX_LENGTH - 8),
+                "*_~|".repeat(MAX_LENGTH / 4),
+                "[".repeat(MAX_LENGTH / 2) + "](".repeat(MAX_LENGTH / 4),
+                "&".repeat(MAX_LENGTH)
+        );
+
+        for (int warmup = 0; warmup < 50; warmup++) {
+            for (var input : inputs) {
+                format(input);
+            }
+        }
+
+        for (var input : inputs) {
+            var time = format(input);
+            assertTrue(time < MAX_NANOS_PER_MESSAGE, "Took " + time / 1_000_000 + " ms: " + input);
+        }
+    }
+
+    @Test
+    void emotePatternMatchesOldOneAndStaysLinear() {
+        var random = new Random(99);
+        for (int i = 0; i < 50_000; i++) {
+            var input = randomMessage(random);
+            var expected = OLD_EMOTE_PATTERN.matcher(input);
+            var actual = StyledChatUtils.EMOTE_PATTERN.matcher(input);
+
+            while (true) {
+                var found = expected.find();
+                assertEquals(found, actual.find(), input);
+                if (!found) {
+                    break;
+                }
+                assertEquals(expected.start(), actual.start(), input);
+                assertEquals(expected.end(), actual.end(), input);
+                assertEquals(expected.group("id"), actual.group("id"), input);
+            }
+        }
+
+        // Far above chat length limit, to make non-linear behaviour obvious
+        var input = ":" + "\\".repeat(100_000) + ":a".repeat(50_000) + "a".repeat(100_000);
+        var start = System.nanoTime();
+        var matcher = StyledChatUtils.EMOTE_PATTERN.matcher(input);
+        while (matcher.find()) {}
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    /**
+     * Runs guarded formatting the same way as formatFor and returns time it took.
+     */
+    private static long format(String input) {
+        var start = System.nanoTime();
+        if (InputGuard.isAllowed(input, LIMITS.maxNodes, LIMITS.maxDepth, knownTags)) {
+            var node = TextNode.asSingle(parser.parseNodes(new LiteralNode(input)));
+            if (InputGuard.isAllowed(node, LIMITS.maxNodes, LIMITS.maxDepth)) {
+                assertNotNull(node.toText(ParserContext.of()), input);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static String randomMessage(Random random) {
+        var builder = new StringBuilder();
+        while (builder.length() < MAX_LENGTH && random.nextInt(40) != 0) {
+            builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        return builder.length() > MAX_LENGTH ? builder.substring(0, MAX_LENGTH) : builder.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package eu.pb4.styledchat.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputGuardTest {
+    private static final Set<String> TAGS = Set.of("red", "bold", "b", "color", "hover");
+
+    @Test
+    void ignoresTextThatIsNotTag() {
+        assertTrue(InputGuard.isAllowed("<3".repeat(100), 10, 4, TAGS));
+        assertTrue(InputGuard.isAllowed("a < b and c <= d <unknown> </unknown>", 1, 1, TAGS));
+    }
+
+    @Test
+    void countsKnownTags() {
+        assertTrue(InputGuard.isAllowed("<red>a</red> <b>b</b>", 4, 4, TAGS));
+        assertFalse(InputGuard.isAllowed("<red>a</red> <b>b</b> <bold>c", 4, 4, TAGS));
+        assertFalse(InputGuard.isAllowed("<color:#ff0000>a".repeat(11), 10, 100, TAGS));
+    }
+
+    @Test
+    void limitsDepth() {
+        assertTrue(InputGuard.isAllowed("<red><b><bold>a</bold></b></red>", 100, 3, TAGS));
+        assertFalse(InputGuard.isAllowed("<red><b><bold><hover:'x'>a", 100, 3, TAGS));
+        // Closed tags don't add to depth
+        assertTrue(InputGuard.isAllowed("<red>a</red>".repeat(10), 100, 1, TAGS));
+        assertTrue(InputGuard.isAllowed("<red>a</>".repeat(10), 100, 1, TAGS));
+    }
+
+    @Test
+    void handlesHugeInputQuickly() {
+        var input = "<".repeat(100_000) + "<red".repeat(10_000);
+        var start = System.nanoTime();
+        assertTrue(InputGuard.isAllowed(input, 10, 10, TAGS));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+}
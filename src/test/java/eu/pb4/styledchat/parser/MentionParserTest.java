@@ -0,0 +1,42 @@
+package eu.pb4.styledchat.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MentionParserTest {
+    @Test
+    void findsAllOccurrencesInOrder() {
+        var result = MentionParser.find("hi Bob and Alice, Bob!", List.of("Alice", "Bob"));
+        assertEquals(List.of(new MentionParser.Occurrence(3, 1), new MentionParser.Occurrence(11, 0), new MentionParser.Occurrence(18, 1)), result);
+    }
+
+    @Test
+    void doesNotOverlap() {
+        assertEquals(List.of(new MentionParser.Occurrence(0, 0), new MentionParser.Occurrence(3, 0)), MentionParser.find("aaaaaaa", List.of("aaa")));
+        // First name in list wins when both start at the same position
+        assertEquals(List.of(new MentionParser.Occurrence(0, 0)), MentionParser.find("Steve2", List.of("Steve", "Steve2")));
+    }
+
+    @Test
+    void handlesNoMatches() {
+        assertEquals(List.of(), MentionParser.find("", List.of("Alice")));
+        assertEquals(List.of(), MentionParser.find("nobody here", List.of("Alice", "Bob")));
+        assertEquals(List.of(), MentionParser.find("Alice", List.of()));
+    }
+
+    @Test
+    void staysLinearWithManyPlayers() {
+        var names = new java.util.ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            names.add("Player" + i);
+        }
+        var input = "Player999 ".repeat(25);
+
+        var start = System.nanoTime();
+        assertEquals(25, MentionParser.find(input, names).size());
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+}
@@ -0,0 +1,83 @@
+package eu.pb4.styledchat.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlScannerTest {
+    /**
+     * Copy of {@link eu.pb4.styledchat.StyledChatUtils#URL_REGEX}, so test doesn't need to initialize Minecraft classes
+     */
+    private static final Pattern URL_REGEX = Pattern.compile("(https?:\\/\\/[-a-zA-Z0-9@:%._\\+~#=]+\\.[^ ]+)");
+    private static final String[] TOKENS = {
+            "http", "https", "://", "/", ".", ".", "a", "b", "x1", "-", "_", "@", ":", "#", "=", "%", "~", "+",
+            " ", " ", "(", ")", ",", ";", "!", "?", "'", "\"", "é", "ä", "com", "www."
+    };
+    private static final String TRIMMED = ".,;:!?'\")";
+
+    @Test
+    void matchesRegexOnRandomInput() {
+        var random = new Random(1234);
+
+        for (int i = 0; i < 200_000; i++) {
+            var builder = new StringBuilder();
+            var length = random.nextInt(24);
+            for (int x = 0; x < length; x++) {
+                // Schemes are added often enough for about 10% of inputs to contain a link
+                if (random.nextInt(6) == 0) {
+                    builder.append(random.nextBoolean() ? "http://" : "https://");
+                } else {
+                    builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+                }
+            }
+            var input = builder.toString();
+
+            var matcher = URL_REGEX.matcher(input);
+            var match = UrlScanner.find(input, 0);
+
+            if (!matcher.find()) {
+                assertNull(match, input);
+                continue;
+            }
+
+            assertNotNull(match, input);
+            assertEquals(matcher.start(), match.start(), input);
+            assertTrue(match.end() <= matcher.end(), input);
+            // Only difference allowed is trimmed trailing punctuation and unbalanced parentheses
+            for (int c = match.end(); c < matcher.end(); c++) {
+                assertTrue(TRIMMED.indexOf(input.charAt(c)) != -1, input);
+            }
+        }
+    }
+
+    @Test
+    void trimsTrailingPunctuation() {
+        assertEquals("https://example.com", find("see https://example.com."));
+        assertEquals("https://example.com/a", find("(https://example.com/a)"));
+        assertEquals("https://en.wikipedia.org/wiki/Foo_(bar)", find("https://en.wikipedia.org/wiki/Foo_(bar)!"));
+    }
+
+    @Test
+    void endsAtAnyWhitespace() {
+        // Regex only stops at regular space, scanner stops at tabs and new lines too
+        assertEquals("http://a.b", find("http://a.b\tnext"));
+        assertEquals("http://a.b", find("http://a.b\nnext"));
+    }
+
+    @Test
+    void rejectsInvalidLinks() {
+        assertNull(UrlScanner.find("http://localhost", 0));
+        assertNull(UrlScanner.find("ftp://example.com", 0));
+        assertNull(UrlScanner.find("http://.com", 0));
+        assertFalse(UrlScanner.isUrl("https://example.com test"));
+        assertTrue(UrlScanner.isUrl("https://example.com"));
+    }
+
+    private static String find(String input) {
+        var match = UrlScanner.find(input, 0);
+        return match != null ? input.substring(match.start(), match.end()) : null;
+    }
+}